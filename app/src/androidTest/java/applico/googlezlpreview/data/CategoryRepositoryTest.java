@@ -0,0 +1,84 @@
+package applico.googlezlpreview.data;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+
+import applico.googlezlpreview.R;
+import applico.googlezlpreview.models.EventStore;
+
+/**
+ * Rankings from the query log against the feed, in either order of the two reads.  The loader callbacks are
+ * driven by hand, nothing is read in the background.
+ */
+public class CategoryRepositoryTest extends AndroidTestCase {
+
+    private static final int FEED_IMAGE = R.drawable.img_sandy;
+
+    private CategoryRepository mRepository;
+    private String[] mCategoryNames;
+    private final ArrayList<EventStore> mUpdates = new ArrayList<EventStore>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mRepository = new CategoryRepository(getContext());
+        mCategoryNames = getContext().getResources().getStringArray(R.array.global_titles);
+        mRepository.addRankingListener(new CategoryRepository.RankingListener() {
+            @Override
+            public void onRankingUpdated(int category, EventStore ranking) {
+                mUpdates.add(ranking);
+            }
+        });
+    }
+
+    public void testLogBeforeFeed() {
+        mRepository.onLogRanked(rankLog());
+        //Nothing to rank against yet
+        assertNull(mRepository.get(0));
+        assertTrue(mUpdates.isEmpty());
+
+        mRepository.onCategoryLoaded(0, mCategoryNames[0], feedEvents(), 2);
+        assertRanking((EventStore) mRepository.get(0));
+    }
+
+    public void testFeedBeforeLog() {
+        mRepository.onCategoryLoaded(0, mCategoryNames[0], feedEvents(), 2);
+        mRepository.onLogRanked(rankLog());
+        assertRanking((EventStore) mRepository.get(0));
+        assertEquals(1, mUpdates.size());
+    }
+
+    public void testCategoryOnlyInTheLog() {
+        mRepository.onLogRanked(rankLog());
+        mRepository.onFeedLoaded();
+        EventStore ranking = (EventStore) mRepository.get(0);
+        assertEquals("Hurricane Sandy", ranking.getTitle(0));
+        assertEquals(R.drawable.img_video, ranking.getImageId(0));
+    }
+
+    private void assertRanking(EventStore ranking) {
+        assertEquals(2, ranking.size());
+        //In the feed, keeps its link and image
+        assertEquals("Hurricane Sandy", ranking.getTitle(0));
+        assertEquals("sandy link", ranking.getShareLink(0));
+        assertEquals(FEED_IMAGE, ranking.getImageId(0));
+        //Only in the log
+        assertEquals("New Query", ranking.getTitle(1));
+        assertEquals(R.drawable.img_video, ranking.getImageId(1));
+    }
+
+    private QueryLogRanker rankLog() {
+        QueryLogRanker ranker = new QueryLogRanker(mCategoryNames, 10);
+        ranker.offer(mCategoryNames[0] + "\thurricane sandy\t5");
+        ranker.offer(mCategoryNames[0] + "\tNew Query\t2");
+        return ranker;
+    }
+
+    private static EventStore feedEvents() {
+        EventStore events = new EventStore();
+        events.add("Gangnam Style", "gangnam link", R.drawable.img_gangnam);
+        events.add("Hurricane Sandy", "sandy link", FEED_IMAGE);
+        return events;
+    }
+}
@@ -0,0 +1,20 @@
+package applico.googlezlpreview;
+
+import android.app.Application;
+
+import applico.googlezlpreview.metrics.LaunchTimeline;
+
+/**
+ * Process wide setup.  Kept as small as possible, everything in here delays the first frame of a cold start.
+ */
+public class ZeitgeistApplication extends Application {
+
+    private static String LOG_TAG = ZeitgeistApplication.class.getSimpleName();
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        //Times every start from here to the first frame of the activity
+        registerActivityLifecycleCallbacks(LaunchTimeline.getInstance());
+    }
+}
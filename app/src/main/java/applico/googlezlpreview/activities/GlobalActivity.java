@@ -6,37 +6,71 @@ import android.graphics.Color;
 import android.net.Uri;
 import android.os.Bundle;
 import android.support.v4.view.ViewPager;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.view.View;
+import android.widget.SearchView;
 
 import com.astuetz.PagerSlidingTabStrip;
 
 import applico.googlezlpreview.R;
+import applico.googlezlpreview.adapters.EventAdapter;
 import applico.googlezlpreview.adapters.GlobalPagerAdapter;
+import applico.googlezlpreview.data.CategoryRepository;
+import applico.googlezlpreview.data.SearchRepository;
 import applico.googlezlpreview.fragments.GlobalFragment;
+import applico.googlezlpreview.metrics.FrameMonitor;
+import applico.googlezlpreview.metrics.LaunchTimeline;
+import applico.googlezlpreview.models.EventStore;
 /**
  * The intention of this class is to show the global activities to the user for the past year
+ * <p>
+ * The search in the action bar looks through every category at once, results replace the pager as they are typed.
  */
 
-public class GlobalActivity extends BaseDrawerFragmentActivity implements GlobalFragment.OnGlobalFragmentInteractionListener {
+public class GlobalActivity extends BaseDrawerFragmentActivity implements GlobalFragment.OnGlobalFragmentInteractionListener,
+        SearchView.OnQueryTextListener, MenuItem.OnActionExpandListener, SearchRepository.Listener {
 
     private static String LOG_TAG = GlobalActivity.class.getSimpleName();
 
     private GlobalPagerAdapter mGlobalFragmentAdapter;
     private ViewPager mViewPager;
+    private RecyclerView.RecycledViewPool mCardViewPool;
 
     private static final int TEXT_SIZE = 40;
 
+    //Search
+    private static final int MAX_SEARCH_RESULTS = 50;
+    private RecyclerView mSearchResultsRV;
+    private EventAdapter mSearchAdapter;
+    private SearchView mSearchView;
+    private SearchRepository mSearchRepository;
+    private String mQuery;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        LaunchTimeline timeline = LaunchTimeline.getInstance();
+        timeline.begin("GlobalActivity.setContentView");
         setContentView(R.layout.activity_global_activity);
+        timeline.end();
+
+        //One pool of cards for every category page.  A page that is destroyed hands back about a screen of
+        //cards and scrolling needs a couple more, so keep two screens worth
+        Resources res = getResources();
+        int visibleCards = res.getDisplayMetrics().heightPixels / res.getDimensionPixelSize(R.dimen.card_image_height)
+                + 1;
+        mCardViewPool = new RecyclerView.RecycledViewPool();
+        mCardViewPool.setMaxRecycledViews(EventAdapter.CARD_VIEW_TYPE, visibleCards * 2);
 
         /**
          * Sweet the view pager is in the support library, makes total sense.  Please force me to use
          * more of the support packages.
         */
 
+        timeline.begin("GlobalActivity.setUpPager");
         mGlobalFragmentAdapter = new GlobalPagerAdapter(getSupportFragmentManager(),getResources().getStringArray(R.array.global_titles));
         mViewPager = (ViewPager) findViewById(R.id.pager);
         mViewPager.setAdapter(mGlobalFragmentAdapter);
@@ -48,15 +82,56 @@ public class GlobalActivity extends BaseDrawerFragmentActivity implements Global
         tabs.setTextColor(resource.getColor(R.color.appBarTextColor));
         tabs.setTextSize(TEXT_SIZE);
         tabs.setDividerColor(resource.getColor(R.color.appBarColor));
+        timeline.end();
+
+        //Results are cards like the category pages and share their pool
+        mSearchResultsRV = (RecyclerView) findViewById(R.id.search_results);
+        mSearchResultsRV.setLayoutManager(new LinearLayoutManager(this));
+        mSearchResultsRV.setRecycledViewPool(mCardViewPool);
+        mSearchAdapter = new EventAdapter(new EventStore());
+        mSearchResultsRV.setAdapter(mSearchAdapter);
+        mSearchRepository = SearchRepository.getInstance(this);
+        mSearchRepository.setListener(this);
+
+        //Rankings from a query log on the device, if there is one, take over from the feed once it is read
+        CategoryRepository.getInstance(this).rankQueryLog();
+
 
+    }
+
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        FrameMonitor.getInstance().setScreen(FrameMonitor.SCREEN_GLOBAL);
+    }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        //Keep the report on disk up to date for whoever pulls it off the device
+        FrameMonitor.getInstance().exportReport(this);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mSearchRepository.setListener(null);
+        //Hand the result cards back to the shared pool
+        mSearchResultsRV.setAdapter(null);
+    }
 
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         // Inflate the menu; this adds items to the action bar if it is present.
         getMenuInflater().inflate(R.menu.global_activity, menu);
+        MenuItem searchItem = menu.findItem(R.id.action_search);
+        searchItem.setOnActionExpandListener(this);
+        mSearchView = (SearchView) searchItem.getActionView();
+        mSearchView.setOnQueryTextListener(this);
+
+        //The pages are up by now, index in the background so the search is ready when it is opened
+        mSearchRepository.start();
         return true;
     }
 
@@ -81,4 +156,52 @@ public class GlobalActivity extends BaseDrawerFragmentActivity implements Global
     public void onFragmentInteraction(Uri uri) {
 
     }
+
+    @Override
+    public RecyclerView.RecycledViewPool getCardViewPool() {
+        return mCardViewPool;
+    }
+
+    @Override
+    public boolean onMenuItemActionExpand(MenuItem item) {
+        mQuery = "";
+        mSearchResultsRV.setVisibility(View.VISIBLE);
+        return true;
+    }
+
+    @Override
+    public boolean onMenuItemActionCollapse(MenuItem item) {
+        mQuery = null;
+        mSearchAdapter.setDataset(new EventStore());
+        mSearchResultsRV.setVisibility(View.GONE);
+        return true;
+    }
+
+    @Override
+    public boolean onQueryTextChange(String newText) {
+        mQuery = newText;
+        search();
+        mSearchResultsRV.scrollToPosition(0);
+        return true;
+    }
+
+    @Override
+    public boolean onQueryTextSubmit(String query) {
+        //Results are already showing, just get the keyboard out of the way
+        mSearchView.clearFocus();
+        return true;
+    }
+
+    @Override
+    public void onIndexUpdated() {
+        //More categories are searchable, results for the current query may have been added
+        if (mQuery != null) {
+            search();
+        }
+    }
+
+    private void search()
+    {
+        mSearchAdapter.setDataset(mSearchRepository.search(mQuery, MAX_SEARCH_RESULTS));
+    }
 }
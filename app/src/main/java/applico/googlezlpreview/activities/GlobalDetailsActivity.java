@@ -2,19 +2,18 @@ package applico.googlezlpreview.activities;
 
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
-import android.animation.ValueAnimator;
-import android.content.res.ColorStateList;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.Color;
 import android.graphics.PorterDuff;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.graphics.drawable.TransitionDrawable;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.v4.app.FragmentActivity;
 import android.support.v4.view.ViewPager;
-import android.support.v7.graphics.Palette;
+import android.transition.Transition;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -32,7 +31,12 @@ import com.astuetz.PagerSlidingTabStrip;
 
 import applico.googlezlpreview.R;
 import applico.googlezlpreview.adapters.GlobalDetailPagerAdapter;
+import applico.googlezlpreview.animation.TintAnimator;
 import applico.googlezlpreview.fragments.GlobalDetailFragment;
+import applico.googlezlpreview.images.ImageCache;
+import applico.googlezlpreview.images.PaletteCache;
+import applico.googlezlpreview.metrics.FrameMonitor;
+import applico.googlezlpreview.metrics.LaunchTimeline;
 import applico.googlezlpreview.views.FabView;
 
 /**
@@ -53,6 +57,14 @@ public class GlobalDetailsActivity extends FragmentActivity implements GlobalDet
     private TextView mTitleRankTV;
 
     private FabView mFabView;
+    //The cached header bitmaps, held until the activity goes away
+    private Bitmap mPreviewBitmap;
+    private Bitmap mDetailBitmap;
+    private HeaderTask mHeaderTask;
+    //Palette color waiting for an image to tint, 0 if there is none
+    private int mPendingTint;
+    private final TintAnimator mTintAnimator = new TintAnimator(TINT_START, TINT_END, TINT_ANIM_TIME,
+            PorterDuff.Mode.DARKEN);
 
     private String mTitle;
     private String mTitleBlank = "";
@@ -62,6 +74,9 @@ public class GlobalDetailsActivity extends FragmentActivity implements GlobalDet
     public static final String RANK_KEY = "rank_key";
     public static final String SUMMARY_KEY = "summary_key";
     public static final String RESOURCE_KEY = "resource_key";
+    //Size the list decoded the image at, optional
+    public static final String PREVIEW_WIDTH_KEY = "preview_width_key";
+    public static final String PREVIEW_HEIGHT_KEY = "preview_height_key";
 
     //Key for the shared elements between activities
     public static final String SHARED_IMAGE = "image";
@@ -72,6 +87,34 @@ public class GlobalDetailsActivity extends FragmentActivity implements GlobalDet
     private static final int TINT_START = 150;
     private static final int TINT_END = -50;
     private static final int TINT_ANIM_TIME = 2000;
+    private static final int CROSSFADE_TIME = 300;
+
+    //The list started timing the transition when the card was tapped, it ends with the shared element enter
+    private Transition mEnterTransition;
+    private boolean mTransitionTimed = true;
+    private final Transition.TransitionListener mEndTransition = new Transition.TransitionListener() {
+        @Override
+        public void onTransitionStart(Transition transition) {
+        }
+
+        @Override
+        public void onTransitionEnd(Transition transition) {
+            endTransitionTiming();
+        }
+
+        @Override
+        public void onTransitionCancel(Transition transition) {
+            endTransitionTiming();
+        }
+
+        @Override
+        public void onTransitionPause(Transition transition) {
+        }
+
+        @Override
+        public void onTransitionResume(Transition transition) {
+        }
+    };
 
 
 
@@ -83,7 +126,10 @@ public class GlobalDetailsActivity extends FragmentActivity implements GlobalDet
         //Call this before setting the content in your view
         requestWindowFeature(Window.FEATURE_ACTION_BAR_OVERLAY);
         messWithBars();
+        LaunchTimeline timeline = LaunchTimeline.getInstance();
+        timeline.begin("GlobalDetailsActivity.setContentView");
         setContentView(R.layout.activity_global_details);
+        timeline.end();
 
         //Get the bundle to process the shared elements on
         Bundle bundle = getIntent().getExtras();
@@ -99,7 +145,7 @@ public class GlobalDetailsActivity extends FragmentActivity implements GlobalDet
 
         //TODO pull view pager titles from string resource file
         mGlobalDetailFragmentAdapter = new GlobalDetailPagerAdapter(getSupportFragmentManager(),
-                getResources().getStringArray(R.array.global_details_titles));
+                getResources().getStringArray(R.array.global_details_titles), bundle.getString(TITLE_KEY));
         mViewPager = (ViewPager) findViewById(R.id.pager);
         mViewPager.setAdapter(mGlobalDetailFragmentAdapter);
 
@@ -111,8 +157,22 @@ public class GlobalDetailsActivity extends FragmentActivity implements GlobalDet
         tabs.setTextSize(TEXT_SIZE);
         tabs.setDividerColor(resource.getColor(R.color.appBarColor));
 
+        timeline.begin("GlobalDetailsActivity.loadItems");
         loadItems(bundle);
+        timeline.end();
 
+        mEnterTransition = getWindow().getSharedElementEnterTransition();
+        if (mEnterTransition != null) {
+            mEnterTransition.addListener(mEndTransition);
+        } else {
+            endTransitionTiming();
+        }
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        FrameMonitor.getInstance().setScreen(FrameMonitor.SCREEN_DETAILS);
     }
 
 
@@ -140,6 +200,17 @@ public class GlobalDetailsActivity extends FragmentActivity implements GlobalDet
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Stop timing the transition, only the first call counts
+     */
+    private void endTransitionTiming()
+    {
+        if (mTransitionTimed) {
+            mTransitionTimed = false;
+            FrameMonitor.getInstance().end(FrameMonitor.TRANSITION);
+        }
+    }
+
     /**
      * This class is intended to get the full bleed images working properly.
      */
@@ -169,6 +240,27 @@ public class GlobalDetailsActivity extends FragmentActivity implements GlobalDet
 
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mTintAnimator.cancel();
+        //Finished before the transition did
+        if (mEnterTransition != null) {
+            mEnterTransition.removeListener(mEndTransition);
+        }
+        endTransitionTiming();
+        if (mHeaderTask != null) {
+            mHeaderTask.cancel(false);
+            mHeaderTask = null;
+        }
+        mBaseIV.setImageDrawable(null);
+        ImageCache cache = ImageCache.getInstance(this);
+        cache.release(mPreviewBitmap);
+        cache.release(mDetailBitmap);
+        mPreviewBitmap = null;
+        mDetailBitmap = null;
+    }
+
     @Override
     public void onBackPressed() {
         //This will reanimate to the previous activity
@@ -182,30 +274,45 @@ public class GlobalDetailsActivity extends FragmentActivity implements GlobalDet
      */
     private void loadItems(Bundle bundle)
     {
-        mBaseIV.setImageDrawable(getResources().getDrawable(bundle.getInt(RESOURCE_KEY)));
+        //The header spans the screen and wraps its height, so only the width bounds the decode.  Unless that is
+        //already in memory the card's smaller bitmap stands in for it, so the first frame never waits on a decode
+        Resources res = getResources();
+        ImageCache cache = ImageCache.getInstance(this);
+        int resId = bundle.getInt(RESOURCE_KEY);
+        int width = res.getDisplayMetrics().widthPixels;
+        mDetailBitmap = cache.getAndAcquire(ImageCache.getKey(resId, width, 0));
+        if (mDetailBitmap != null) {
+            mBaseIV.setImageDrawable(new BitmapDrawable(res, mDetailBitmap));
+        } else {
+            mPreviewBitmap = cache.getAndAcquire(ImageCache.getKey(resId, bundle.getInt(PREVIEW_WIDTH_KEY),
+                    bundle.getInt(PREVIEW_HEIGHT_KEY)));
+            if (mPreviewBitmap != null) {
+                mBaseIV.setImageDrawable(new BitmapDrawable(res, mPreviewBitmap));
+            }
+            mHeaderTask = new HeaderTask(resId, width);
+            mHeaderTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        }
         mTitleTV.setText(bundle.getString(TITLE_KEY));
         mTitleRankTV.setText(bundle.getString(RANK_KEY));
 
-        //Set the tint
-        final Drawable d = mBaseIV.getDrawable();
-        Bitmap b =  ((BitmapDrawable)d).getBitmap();
-        Palette p = Palette.generate(b);
-
-        //Get the light vibrant color in the image and tint it dark
-        final int color = p.getLightVibrantColor().getRgb();
-
-        ValueAnimator anim = ValueAnimator.ofInt(TINT_START,TINT_END);
-        anim.setDuration(TINT_ANIM_TIME);
-        anim.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+        //Set the tint, the palette comes from the cache or a background worker so the transition isn't held up
+        final long paletteStart = LaunchTimeline.now();
+        PaletteCache.getInstance(this).getColor(resId,
+                res.getColor(R.color.appBarColor), new PaletteCache.OnColorReadyListener() {
             @Override
-            public void onAnimationUpdate(ValueAnimator valueAnimator) {
-                int percent = (Integer)valueAnimator.getAnimatedValue();
-                int val = getShadedColor(color,percent);
-                d.setTint(ColorStateList.valueOf(val), PorterDuff.Mode.DARKEN);
+            public void onColorReady(int color) {
+                LaunchTimeline.getInstance().record("GlobalDetailsActivity.palette", paletteStart);
+                if (isDestroyed()) {
+                    return;
+                }
+                Drawable d = mBaseIV.getDrawable();
+                if (d != null) {
+                    mTintAnimator.start(d, color);
+                } else {
+                    mPendingTint = color;
+                }
             }
         });
-        anim.start();
-
 
         //Fade in animation for the text
         Animation fadeIn = AnimationUtils.loadAnimation(this,R.anim.fade_in);
@@ -224,26 +331,66 @@ public class GlobalDetailsActivity extends FragmentActivity implements GlobalDet
     }
 
     /**
-     * RGB value for shaded color
-     * @param color
-     * @param percent
-     * @return
+     * Show the full size header, crossfading from the preview if there is one
+     * @param bitmap already acquired
      */
-    private int getShadedColor(int color, int percent)
+    private void showHeader(Bitmap bitmap)
     {
-        int R = Color.red(color);
-        int G = Color.green(color);
-        int B = Color.blue(color);
+        mDetailBitmap = bitmap;
+        Resources res = getResources();
+        Drawable header = new BitmapDrawable(res, bitmap);
+        Drawable preview = mBaseIV.getDrawable();
+        if (preview != null) {
+            TransitionDrawable crossfade = new TransitionDrawable(new Drawable[] {preview, header});
+            crossfade.setCrossFadeEnabled(true);
+            header = crossfade;
+        }
+        mBaseIV.setImageDrawable(header);
+        mTintAnimator.retarget(header);
+        if (header instanceof TransitionDrawable) {
+            ((TransitionDrawable)header).startTransition(CROSSFADE_TIME);
+        }
+        if (mPendingTint != 0) {
+            mTintAnimator.start(header, mPendingTint);
+            mPendingTint = 0;
+        }
+    }
+
+    /**
+     * Decodes the full size header through the image cache
+     */
+    private class HeaderTask extends AsyncTask<Void, Void, Bitmap> {
+
+        private final Resources mResources = getResources();
+        private final int mResId;
+        private final int mWidth;
+        private final long mStartNanos = LaunchTimeline.now();
 
-        R = (R * (100 + percent)) / 100;
-        G = (G * (100 + percent)) / 100;
-        B = (B * (100 + percent)) / 100;
+        HeaderTask(int resId, int width) {
+            mResId = resId;
+            mWidth = width;
+        }
 
-        R = (R<255)?R:255;
-        G = (G<255)?G:255;
-        B = (B<255)?B:255;
+        @Override
+        protected Bitmap doInBackground(Void... params) {
+            return ImageCache.getInstance(GlobalDetailsActivity.this).getAndAcquireBitmap(mResources, mResId,
+                    mWidth, 0);
+        }
 
-        return Color.rgb(R,G,B);
+        @Override
+        protected void onPostExecute(Bitmap bitmap) {
+            LaunchTimeline.getInstance().record("GlobalDetailsActivity.loadHeader", mStartNanos);
+            mHeaderTask = null;
+            if (isDestroyed()) {
+                ImageCache.getInstance(GlobalDetailsActivity.this).release(bitmap);
+            } else if (bitmap != null) {
+                showHeader(bitmap);
+            }
+        }
 
+        @Override
+        protected void onCancelled(Bitmap bitmap) {
+            ImageCache.getInstance(GlobalDetailsActivity.this).release(bitmap);
+        }
     }
 }
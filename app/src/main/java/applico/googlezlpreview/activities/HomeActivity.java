@@ -18,6 +18,8 @@ import android.support.v4.widget.DrawerLayout;
 
 import applico.googlezlpreview.NavigationDrawerFragment;
 import applico.googlezlpreview.R;
+import applico.googlezlpreview.adapters.CardPreinflater;
+import applico.googlezlpreview.metrics.LaunchTimeline;
 
 /**
  *
@@ -40,10 +42,16 @@ public class HomeActivity extends Activity implements NavigationDrawerFragment.N
      */
     private CharSequence mTitle;
 
+    //Cards to have ready for the global lists, a screen of them and one to scroll into
+    private static final int WARM_CARDS = 4;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        LaunchTimeline timeline = LaunchTimeline.getInstance();
+        timeline.begin("HomeActivity.setContentView");
         setContentView(R.layout.activity_home);
+        timeline.end();
 
         mNavigationDrawerFragment = (NavigationDrawerFragment)
                 getFragmentManager().findFragmentById(R.id.navigation_drawer);
@@ -52,9 +60,24 @@ public class HomeActivity extends Activity implements NavigationDrawerFragment.N
         mGlobalCardView = (CardView)findViewById(R.id.global_card_view);
         mGlobalCardView.setOnClickListener(this);
         // Set up the drawer.
+        timeline.begin("HomeActivity.setUpDrawer");
         mNavigationDrawerFragment.setUp(
                 R.id.navigation_drawer,
                 (DrawerLayout) findViewById(R.id.drawer_layout));
+        timeline.end();
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        //Nothing much happens on this screen, use the idle time to get the global list cards ready
+        CardPreinflater.getInstance(this).prepare(WARM_CARDS);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        CardPreinflater.getInstance(this).stop();
     }
 
     @Override
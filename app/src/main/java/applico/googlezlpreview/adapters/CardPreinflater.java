@@ -0,0 +1,108 @@
+package applico.googlezlpreview.adapters;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import java.util.ArrayList;
+
+import applico.googlezlpreview.R;
+
+/**
+ * Inflates event cards ahead of time while the main thread has nothing else to do, so the first screen of the
+ * global lists doesn't have to inflate them while its first frame is built.  One card is inflated per idle pass
+ * of the main looper, which keeps every pass short enough not to hold up input or drawing that comes in.
+ * <p>
+ * The cards are inflated against the application context with the app theme, they don't belong to any activity
+ * and can be kept between screens.  All calls have to be made from the main thread.
+ */
+public class CardPreinflater implements MessageQueue.IdleHandler {
+
+    private static final String LOG_TAG = CardPreinflater.class.getSimpleName();
+
+    private static CardPreinflater sInstance;
+
+    private final LayoutInflater mInflater;
+    private final FrameLayout mParent;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ArrayList<View> mCards = new ArrayList<View>();
+    private int mTarget;
+    private boolean mScheduled;
+
+    //Posted after each card to get another idle pass
+    private final Runnable mNextPass = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    public static CardPreinflater getInstance(Context context)
+    {
+        if (sInstance == null) {
+            sInstance = new CardPreinflater(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private CardPreinflater(Context context)
+    {
+        Context themed = new ContextThemeWrapper(context, R.style.AppTheme);
+        mInflater = LayoutInflater.from(themed);
+        //Only there to give the cards layout params, they are converted when the list adds them
+        mParent = new FrameLayout(themed);
+    }
+
+    /**
+     * Keep inflating cards whenever the main thread is idle until there are this many ready
+     * @param count
+     */
+    public void prepare(int count)
+    {
+        mTarget = count;
+        if (mCards.size() < mTarget && !mScheduled) {
+            mScheduled = true;
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    /**
+     * Stop inflating, the cards that are ready are kept
+     */
+    public void stop()
+    {
+        mTarget = 0;
+        if (mScheduled) {
+            mScheduled = false;
+            Looper.myQueue().removeIdleHandler(this);
+        }
+    }
+
+    /**
+     * @return a card inflated ahead of time, null if there is none left
+     */
+    public View obtain()
+    {
+        int size = mCards.size();
+        return size > 0 ? mCards.remove(size - 1) : null;
+    }
+
+    @Override
+    public boolean queueIdle() {
+        if (mCards.size() >= mTarget) {
+            mScheduled = false;
+            return false;
+        }
+        mCards.add(mInflater.inflate(R.layout.fragment_global_items, mParent, false));
+        if (mCards.size() < mTarget) {
+            mHandler.post(mNextPass);
+            return true;
+        }
+        mScheduled = false;
+        return false;
+    }
+}
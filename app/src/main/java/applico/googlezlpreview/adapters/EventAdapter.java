@@ -4,6 +4,10 @@ import android.app.Activity;
 import android.app.ActivityOptions;
 import android.content.Context;
 import android.content.Intent;
+import android.content.res.Resources;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.v7.widget.CardView;
 import android.support.v7.widget.RecyclerView;
@@ -16,14 +20,17 @@ import android.view.animation.Animation;
 import android.view.animation.Transformation;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
-import android.widget.RelativeLayout;
 import android.widget.TextView;
 
-import java.util.List;
-
 import applico.googlezlpreview.R;
 import applico.googlezlpreview.activities.GlobalDetailsActivity;
+import applico.googlezlpreview.data.EventDiff;
+import applico.googlezlpreview.images.ImageLoader;
+import applico.googlezlpreview.metrics.FrameMonitor;
+import applico.googlezlpreview.metrics.LaunchTimeline;
 import applico.googlezlpreview.models.Event;
+import applico.googlezlpreview.models.EventSource;
+import applico.googlezlpreview.models.EventStore;
 import applico.googlezlpreview.views.FabView;
 
 /**
@@ -39,20 +46,133 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.ViewHolder>
         .OnClickListener {
 
     private static String LOG_TAG = EventAdapter.class.getSimpleName();
-    private List<Event> mEventDataset;
+    private EventSource mEventDataset;
+    //Flyweight the rows are read into
+    private final Event mEvent = new Event();
     private static final int SLIDE_DURATION = 300;
 
+    //Every row is a card, pools shared between lists of cards are sized for this type
+    public static final int CARD_VIEW_TYPE = 0;
+
+    //Size the card images are decoded and cached at
+    private int mCardImageWidth;
+    private int mCardImageHeight;
+    private Drawable mPlaceholder;
+
+    //Diff of the last ranking update, still running in the background
+    private DiffTask mDiffTask;
+
+    //Fab of the list the cards are in, shared with the detail screen, null if the list has none
+    private final FabView mFabView;
+
     // Provide a suitable constructor (depends on the kind of dataset)
-    public EventAdapter(List<Event> myDataset)
+    public EventAdapter(EventSource myDataset)
+    {
+        this(myDataset, null);
+    }
+
+    /**
+     * @param myDataset
+     * @param fabView fab that slides along into the detail screen, null for lists without one, e.g. search
+     *                results, where only the image is shared
+     */
+    public EventAdapter(EventSource myDataset, FabView fabView)
     {
         mEventDataset = myDataset;
+        mFabView = fabView;
+    }
+
+
+    /**
+     * Replace the whole dataset
+     * @param dataset
+     */
+    public void setDataset(EventSource dataset)
+    {
+        if (mDiffTask != null) {
+            mDiffTask.cancel(false);
+            mDiffTask = null;
+        }
+        mEventDataset = dataset;
+        notifyDataSetChanged();
     }
 
+    /**
+     * Move to a refreshed ranking of the same category.  The two rankings are diffed in the background and only
+     * the cards that were removed, inserted, moved or changed are notified, so the rest of the list keeps its
+     * views and the item animations show what actually changed.  A dataset that isn't a fully loaded ranking
+     * is simply replaced.
+     * @param ranking
+     */
+    public void updateRanking(EventStore ranking)
+    {
+        if (!(mEventDataset instanceof EventStore)) {
+            setDataset(ranking);
+            return;
+        }
+        if (mDiffTask != null) {
+            mDiffTask.cancel(false);
+        }
+        mDiffTask = new DiffTask((EventStore)mEventDataset, ranking);
+        mDiffTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    private class DiffTask extends AsyncTask<Void, Void, EventDiff> implements EventDiff.Callback {
+
+        private final EventStore mOld;
+        private final EventStore mNew;
+
+        DiffTask(EventStore oldRanking, EventStore newRanking) {
+            mOld = oldRanking;
+            mNew = newRanking;
+        }
+
+        @Override
+        protected EventDiff doInBackground(Void... params) {
+            return EventDiff.compute(mOld, mNew);
+        }
+
+        @Override
+        protected void onPostExecute(EventDiff diff) {
+            mDiffTask = null;
+            if (mEventDataset != mOld) {
+                //The list moved on while diffing, the steps no longer apply
+                setDataset(mNew);
+                return;
+            }
+            mEventDataset = mNew;
+            diff.dispatch(this);
+        }
+
+        @Override
+        public void onRemoved(int position) {
+            notifyItemRemoved(position);
+        }
+
+        @Override
+        public void onInserted(int position) {
+            notifyItemInserted(position);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            notifyItemMoved(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onChanged(int position) {
+            notifyItemChanged(position);
+        }
+    }
 
     @Override
     public ViewHolder onCreateViewHolder(ViewGroup parent, int i) {
         // create a new view
-        View v = LayoutInflater.from(parent.getContext()).inflate(R.layout.fragment_global_items, parent, false);
+        //Take one of the cards inflated while the home screen was idle if there is one
+        View v = CardPreinflater.getInstance(parent.getContext()).obtain();
+        if (v == null) {
+            v = LayoutInflater.from(parent.getContext()).inflate(R.layout.fragment_global_items, parent, false);
+        }
         // set the view's size, margins, paddings and layout parameters
         ViewHolder vh = new ViewHolder(v);
         return vh;
@@ -62,11 +182,6 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.ViewHolder>
     public void onBindViewHolder(ViewHolder holder, int pos) {
         // - get element from your dataset at this position
         // - replace the contents of the view with that element
-        Event ev = mEventDataset.get(pos);
-        String position = String.valueOf(pos + 1);
-        holder.mTitleRankTV.setText(position);
-        holder.mTitleTV.setText(ev.eventTitle);
-        holder.mBaseImageIV.setImageBitmap(ev.eventImageSmall);
         //Set the tag for the onClick event
         holder.mLearnMoreTV.setTag(holder);
         holder.mLearnMoreTV.setOnClickListener(this);
@@ -75,8 +190,47 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.ViewHolder>
         holder.mCardView.setTag(holder);
         holder.mCardView.setOnClickListener(this);
 
+        //Cards can come from a pool shared with other lists, so this adapter may never have created one
+        if (mCardImageWidth == 0) {
+            Resources res = holder.itemView.getResources();
+            mCardImageWidth = res.getDisplayMetrics().widthPixels;
+            mCardImageHeight = res.getDimensionPixelSize(R.dimen.card_image_height);
+            mPlaceholder = new ColorDrawable(res.getColor(R.color.layoutStandardBackground));
+        }
+
+        Event ev = mEventDataset.get(pos, mEvent);
+        ImageLoader loader = ImageLoader.getInstance(holder.mBaseImageIV.getContext());
+        if (ev == null) {
+            //The page isn't loaded yet, show an empty card until it is
+            holder.mTitleRankTV.setText(String.valueOf(pos + 1));
+            holder.mTitleTV.setText(null);
+            loader.cancel(holder.mBaseImageIV);
+            holder.mBaseImageIV.setImageDrawable(mPlaceholder);
+            return;
+        }
+        String rank = String.valueOf(ev.eventRank);
+        holder.mTitleRankTV.setText(rank);
+        holder.mTitleTV.setText(ev.eventTitle);
+        //Rebinding the holder to another position cancels whatever it was still loading
+        loader.load(holder.mBaseImageIV, ev.eventImageID, mCardImageWidth, mCardImageHeight, mPlaceholder);
+
+    }
+
+
+    /**
+     * The card is going back to the recycler, cancel its image request and let go of its bitmap so it can be
+     * reused for the next decode
+     * @param holder
+     */
+    @Override
+    public void onViewRecycled(ViewHolder holder) {
+        ImageLoader.getInstance(holder.mBaseImageIV.getContext()).cancel(holder.mBaseImageIV);
     }
 
+    @Override
+    public int getItemViewType(int position) {
+        return CARD_VIEW_TYPE;
+    }
 
     //Return the size of your dataset (invoked by the layout manager)
     @Override
@@ -89,13 +243,24 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.ViewHolder>
     @Override
     public void onClick(View v) {
         ViewHolder holder = (ViewHolder)v.getTag();
+        //A card that was removed can still be tapped while it animates out, it has no row anymore
+        if (holder.getPosition() == RecyclerView.NO_POSITION) {
+            return;
+        }
+        //Cards may have been inflated ahead of time against the application, the list knows the activity
+        Context ctx = ((View)holder.itemView.getParent()).getContext();
         switch(v.getId())
         {
             case R.id.learn_more:
-                slideandSharedAnimation(holder, v.getContext());
+                if (mFabView != null) {
+                    slideandSharedAnimation(holder, ctx);
+                } else {
+                    //Lists without a fab only share the image
+                    standardSharedAnimation(holder, ctx);
+                }
                 break;
             case R.id.region_card_view:
-                standardSharedAnimation(holder, v.getContext());
+                standardSharedAnimation(holder, ctx);
                 break;
 
         }
@@ -103,8 +268,8 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.ViewHolder>
     }
 
     // Provide a reference to the type of views that you are using
-    // (custom viewholder)
-    public class ViewHolder extends RecyclerView.ViewHolder{
+    // (custom viewholder), static so a card can be handed to any list sharing the view pool
+    public static class ViewHolder extends RecyclerView.ViewHolder{
 
         private TextView mTitleTV;
         private TextView mTitleRankTV;
@@ -135,14 +300,23 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.ViewHolder>
        final CardView cv = (CardView)aVImage.getParent().getParent();
 
 
-        Event event = mEventDataset.get(Integer.parseInt(aVRank.getText().toString()) - 1);
+        Event event = mEventDataset.get(holder.getPosition(), mEvent);
+        if (event == null) {
+            return;
+        }
 
         final Intent intent = new Intent(ctx, GlobalDetailsActivity.class);
         intent.putExtra(GlobalDetailsActivity.TITLE_KEY, event.eventTitle);
         intent.putExtra(GlobalDetailsActivity.RANK_KEY, aVRank.getText());
-        intent.putExtra(GlobalDetailsActivity.RESOURCE_KEY, event.eventImageDetailID);
+        intent.putExtra(GlobalDetailsActivity.RESOURCE_KEY, event.eventImageID);
+        //The card's bitmap is in the image cache at this size, the detail shows it until its own is decoded
+        intent.putExtra(GlobalDetailsActivity.PREVIEW_WIDTH_KEY, mCardImageWidth);
+        intent.putExtra(GlobalDetailsActivity.PREVIEW_HEIGHT_KEY, mCardImageHeight);
         Activity act = (Activity)ctx;
 
+        //Ended by the detail screen once its shared element transition is over
+        FrameMonitor.getInstance().begin(FrameMonitor.TRANSITION);
+        LaunchTimeline.getInstance().markCardTap();
         Pair shared = Pair.create(aVImage,GlobalDetailsActivity.SHARED_IMAGE);
         ActivityOptions options = ActivityOptions.makeSceneTransitionAnimation((Activity)ctx, shared);
         Bundle bundle = options.toBundle();
@@ -159,19 +333,27 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.ViewHolder>
 
 
         final CardView cv = (CardView)aVImage.getParent().getParent();
-        RelativeLayout rl = (RelativeLayout)cv.getParent().getParent().getParent();
-        FabView fv = (FabView)rl.findViewById(R.id.fab_view);
+        FabView fv = mFabView;
         fv.setViewName(GlobalDetailsActivity.SHARED_FAB_VIEW);
 
 
-        Event event = mEventDataset.get(Integer.parseInt(aVRank.getText().toString()) - 1);
+        Event event = mEventDataset.get(holder.getPosition(), mEvent);
+        if (event == null) {
+            return;
+        }
 
         final Intent intent = new Intent(ctx, GlobalDetailsActivity.class);
         intent.putExtra(GlobalDetailsActivity.TITLE_KEY, event.eventTitle);
         intent.putExtra(GlobalDetailsActivity.RANK_KEY, aVRank.getText());
-        intent.putExtra(GlobalDetailsActivity.RESOURCE_KEY, event.eventImageDetailID);
+        intent.putExtra(GlobalDetailsActivity.RESOURCE_KEY, event.eventImageID);
+        //The card's bitmap is in the image cache at this size, the detail shows it until its own is decoded
+        intent.putExtra(GlobalDetailsActivity.PREVIEW_WIDTH_KEY, mCardImageWidth);
+        intent.putExtra(GlobalDetailsActivity.PREVIEW_HEIGHT_KEY, mCardImageHeight);
         Activity act = (Activity)ctx;
 
+        //Ended by the detail screen once its shared element transition is over
+        FrameMonitor.getInstance().begin(FrameMonitor.TRANSITION);
+        LaunchTimeline.getInstance().markCardTap();
         final Pair sharedFirst = Pair.create(aVImage,GlobalDetailsActivity.SHARED_IMAGE);
         final Pair sharedSecond = Pair.create(fv, GlobalDetailsActivity.SHARED_FAB_VIEW);
 
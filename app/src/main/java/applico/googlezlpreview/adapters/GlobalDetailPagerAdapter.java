@@ -1,11 +1,9 @@
 package applico.googlezlpreview.adapters;
 
-import android.os.Bundle;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentStatePagerAdapter;
 
 import applico.googlezlpreview.fragments.GlobalDetailFragment;
-import applico.googlezlpreview.fragments.GlobalFragment;
 
 /**
  * This is for managing the swipes between the different global
@@ -19,18 +17,23 @@ public class GlobalDetailPagerAdapter extends FragmentStatePagerAdapter {
 
     private int mItems;
     private String[] mTitles;
-
-    public GlobalDetailPagerAdapter(android.support.v4.app.FragmentManager fm, String[] titles) {
+    private String mEvent;
+
+    /**
+     * @param fm
+     * @param titles tab titles, in the order of the DetailRepository tabs
+     * @param event title of the event the tabs are about
+     */
+    public GlobalDetailPagerAdapter(android.support.v4.app.FragmentManager fm, String[] titles, String event) {
         super(fm);
         mItems = titles.length;
         mTitles = titles;
+        mEvent = event;
     }
 
     @Override
     public Fragment getItem(int i) {
-        Fragment fragment = new GlobalDetailFragment();
-        Bundle bundle = new Bundle();
-        fragment.setArguments(bundle);
+        Fragment fragment = GlobalDetailFragment.newInstance(mEvent, i);
         return fragment;
 
 
@@ -30,8 +30,7 @@ public class GlobalPagerAdapter extends FragmentStatePagerAdapter {
 
     @Override
     public Fragment getItem(int i) {
-        Fragment fragment = new GlobalFragment();
-        Bundle args = new Bundle();
+        Fragment fragment = GlobalFragment.newInstance(i);
         return fragment;
 
 
@@ -0,0 +1,75 @@
+package applico.googlezlpreview.adapters;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import applico.googlezlpreview.R;
+import applico.googlezlpreview.models.TweetWindow;
+
+/**
+ * Shows the posts of a {@link TweetWindow}, newest on top
+ * @author Matt Powers
+ */
+public class TweetAdapter extends RecyclerView.Adapter<TweetAdapter.ViewHolder> {
+
+    private static String LOG_TAG = TweetAdapter.class.getSimpleName();
+
+    private final TweetWindow mWindow;
+    //What the list has been told about, the window may already be further along
+    private int mDisplayedSize;
+
+    public TweetAdapter(TweetWindow window)
+    {
+        mWindow = window;
+        mDisplayedSize = window.size();
+    }
+
+    /**
+     * Posts were added to the window since the last call, notify the inserted ones on top and the ones that fell
+     * out at the bottom
+     * @param added
+     */
+    public void onTweetsAdded(int added)
+    {
+        int newSize = mWindow.size();
+        int inserted = Math.min(added, mWindow.getCapacity());
+        int removed = mDisplayedSize + inserted - newSize;
+        if (removed > 0) {
+            notifyItemRangeRemoved(mDisplayedSize - removed, removed);
+        }
+        notifyItemRangeInserted(0, inserted);
+        mDisplayedSize = newSize;
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int i) {
+        View v = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_tweet, parent, false);
+        return new ViewHolder(v);
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int pos) {
+        holder.mAuthorTV.setText(mWindow.getAuthor(pos));
+        holder.mTextTV.setText(mWindow.getText(pos));
+    }
+
+    @Override
+    public int getItemCount() {
+        return mDisplayedSize;
+    }
+
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+
+        private TextView mAuthorTV;
+        private TextView mTextTV;
+
+        public ViewHolder(View v) {
+            super(v);
+            mAuthorTV = (TextView) v.findViewById(R.id.tweet_author);
+            mTextTV = (TextView) v.findViewById(R.id.tweet_text);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package applico.googlezlpreview.animation;
+
+import android.animation.TimeAnimator;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.graphics.drawable.Drawable;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.Interpolator;
+
+import applico.googlezlpreview.metrics.FrameMonitor;
+import applico.googlezlpreview.util.ColorUtils;
+
+/**
+ * Animates a drawable through shades of a color, e.g. a palette color going from light to dark.
+ * The whole ramp of color filters is built once per color when the animation starts, each frame only picks
+ * the filter for the current fraction, so nothing is allocated while the animation runs.  A {@link TimeAnimator}
+ * drives it instead of a ValueAnimator so the animated value isn't boxed every frame either.
+ */
+public class TintAnimator implements TimeAnimator.TimeListener {
+
+    private static final String LOG_TAG = TintAnimator.class.getSimpleName();
+
+    private final TimeAnimator mAnimator = new TimeAnimator();
+    private final Interpolator mInterpolator = new AccelerateDecelerateInterpolator();
+    private final int mStartPercent;
+    private final int mEndPercent;
+    private final long mDuration;
+    private final PorterDuff.Mode mMode;
+
+    //One filter per percent step between start and end
+    private PorterDuffColorFilter[] mRamp;
+    private int mRampColor;
+    private int mLastIndex = -1;
+    private Drawable mTarget;
+
+    /**
+     * @param startPercent shade the animation starts at, see {@link ColorUtils#getShadedColor(int, int)}
+     * @param endPercent shade the animation ends at
+     * @param duration in milliseconds
+     * @param mode how the shade is blended with the drawable
+     */
+    public TintAnimator(int startPercent, int endPercent, long duration, PorterDuff.Mode mode)
+    {
+        mStartPercent = startPercent;
+        mEndPercent = endPercent;
+        mDuration = duration;
+        mMode = mode;
+        mAnimator.setTimeListener(this);
+    }
+
+    /**
+     * Start tinting the drawable with shades of the color, any running animation is cancelled first
+     * @param target
+     * @param color
+     */
+    public void start(Drawable target, int color)
+    {
+        cancel();
+        if (mRamp == null || mRampColor != color) {
+            buildRamp(color);
+        }
+        mTarget = target;
+        mLastIndex = -1;
+        FrameMonitor.getInstance().begin(FrameMonitor.TINT);
+        mAnimator.start();
+    }
+
+    /**
+     * Move the tint over to another drawable, e.g. when the image is swapped for a sharper one.  The shade the
+     * animation has reached is applied to the new drawable right away and a running animation carries on with it.
+     * @param target
+     */
+    public void retarget(Drawable target)
+    {
+        if (mLastIndex >= 0) {
+            target.setColorFilter(mRamp[mLastIndex]);
+        }
+        if (mTarget != null) {
+            mTarget = target;
+        }
+    }
+
+    public void cancel()
+    {
+        mAnimator.cancel();
+        if (mTarget != null) {
+            FrameMonitor.getInstance().end(FrameMonitor.TINT);
+            mTarget = null;
+        }
+    }
+
+    public boolean isRunning()
+    {
+        return mAnimator.isRunning();
+    }
+
+    @Override
+    public void onTimeUpdate(TimeAnimator animation, long totalTime, long deltaTime) {
+        float fraction = totalTime >= mDuration ? 1f : (float) totalTime / mDuration;
+        int index = Math.round(mInterpolator.getInterpolation(fraction) * (mRamp.length - 1));
+        if (index != mLastIndex) {
+            mLastIndex = index;
+            mTarget.setColorFilter(mRamp[index]);
+        }
+        if (fraction >= 1f) {
+            //Keep the last filter on the drawable, only stop the clock
+            mAnimator.end();
+            FrameMonitor.getInstance().end(FrameMonitor.TINT);
+            mTarget = null;
+        }
+    }
+
+    private void buildRamp(int color)
+    {
+        int steps = Math.abs(mEndPercent - mStartPercent) + 1;
+        int direction = mEndPercent >= mStartPercent ? 1 : -1;
+        mRamp = new PorterDuffColorFilter[steps];
+        for (int i = 0; i < steps; i++) {
+            int shade = ColorUtils.getShadedColor(color, mStartPercent + i * direction);
+            mRamp[i] = new PorterDuffColorFilter(shade, mMode);
+        }
+        mRampColor = color;
+    }
+}
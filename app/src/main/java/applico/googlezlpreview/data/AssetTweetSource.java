@@ -0,0 +1,76 @@
+package applico.googlezlpreview.data;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * Stand in for the live service, replays the bundled tweets asset over and over at a fixed rate.  Every line of
+ * the asset is a post of the form "author|text".
+ */
+public class AssetTweetSource implements TweetSource {
+
+    private static final String LOG_TAG = AssetTweetSource.class.getSimpleName();
+
+    public static final String TWEETS_ASSET = "tweets.txt";
+
+    private final Context mContext;
+    private final long mIntervalMillis;
+    private BufferedReader mReader;
+    private long mNextPostTime;
+
+    /**
+     * @param context
+     * @param postsPerSecond how fast to replay, 0 for as fast as the reader takes them
+     */
+    public AssetTweetSource(Context context, int postsPerSecond)
+    {
+        mContext = context.getApplicationContext();
+        mIntervalMillis = postsPerSecond > 0 ? 1000 / postsPerSecond : 0;
+    }
+
+    @Override
+    public boolean next(String[] post) throws IOException, InterruptedException {
+        if (mIntervalMillis > 0) {
+            long wait = mNextPostTime - SystemClock.uptimeMillis();
+            if (wait > 0) {
+                Thread.sleep(wait);
+            }
+            mNextPostTime = Math.max(mNextPostTime, SystemClock.uptimeMillis() - mIntervalMillis) + mIntervalMillis;
+        }
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (mReader == null) {
+                mReader = new BufferedReader(new InputStreamReader(mContext.getAssets().open(TWEETS_ASSET), "UTF-8"));
+            }
+            String line;
+            while ((line = mReader.readLine()) != null) {
+                int separator = line.indexOf('|');
+                if (separator > 0) {
+                    post[0] = line.substring(0, separator);
+                    post[1] = line.substring(separator + 1);
+                    return true;
+                }
+            }
+            //Start over from the top
+            close();
+        }
+        //The asset has no posts at all
+        return false;
+    }
+
+    @Override
+    public void close() {
+        if (mReader != null) {
+            try {
+                mReader.close();
+            } catch (IOException e) {
+                //Nothing left to do with it
+            }
+            mReader = null;
+        }
+    }
+}
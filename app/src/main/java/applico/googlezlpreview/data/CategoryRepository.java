@@ -0,0 +1,302 @@
+package applico.googlezlpreview.data;
+
+import android.content.Context;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+
+import applico.googlezlpreview.R;
+import applico.googlezlpreview.models.Event;
+import applico.googlezlpreview.models.EventSource;
+import applico.googlezlpreview.models.EventStore;
+
+/**
+ * Process wide home of the category rankings.  The feed is read once for all categories and every category is
+ * kept after it has been loaded, so pages the pager destroys and recreates get their list back right away.
+ * Requests made while the feed is being read share that one read and are answered as their category comes in.
+ * <p>
+ * Long categories are kept as a {@link PagedEventList} seeded with their first page.  All calls have to be made
+ * from the main thread.
+ * <p>
+ * When there is a query log the categories are ranked from it instead, see {@link #rankQueryLog()}.  Whichever
+ * of the log and the feed is read first, a category is only ranked once its events from the feed are in, so the
+ * events that are in the feed keep their link and image.
+ */
+public class CategoryRepository implements FeedLoader.Callbacks, QueryLogLoader.Callbacks {
+
+    private static final String LOG_TAG = CategoryRepository.class.getSimpleName();
+
+    //Paging of long categories
+    public static final int PAGE_SIZE = 20;
+    private static final int PREFETCH_DISTANCE = 10;
+    private static final int MAX_PAGES_AWAY = 2;
+
+    //Rankings from the query log
+    private static final String QUERY_LOG = "queries.log";
+    private static final int RANKING_SIZE = 100;
+    //Enough counters that the top of the ranking is exact for any realistic spread of queries
+    private static final int QUERY_COUNTERS = 5000;
+
+    private static CategoryRepository sInstance;
+
+    private final Context mContext;
+    //Feed names of the categories, in feed order
+    private final String[] mCategoryNames;
+    private final SparseArray<EventSource> mCategories = new SparseArray<EventSource>();
+    private final SparseArray<ArrayList<Listener>> mWaiting = new SparseArray<ArrayList<Listener>>();
+    private FeedLoader mLoader;
+    //Page offsets of the current feed read, for the pages of long categories
+    private FeedIndex mFeedIndex;
+    private final ArrayList<RankingListener> mRankingListeners = new ArrayList<RankingListener>();
+    private QueryLogLoader mLogLoader;
+    private boolean mLogRanked;
+    //Counts of the whole log once it has been read, categories are ranked from it as the feed comes in
+    private QueryLogRanker mLogRanker;
+    private boolean mFeedRead;
+
+    /**
+     * Called on the main thread
+     */
+    public interface Listener {
+        public void onCategoryReady(int category, EventSource events);
+    }
+
+    /**
+     * Called on the main thread
+     */
+    public interface RankingListener {
+        public void onRankingUpdated(int category, EventStore ranking);
+    }
+
+    public static synchronized CategoryRepository getInstance(Context context)
+    {
+        if (sInstance == null) {
+            sInstance = new CategoryRepository(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    //Not private for the tests, everything else goes through getInstance
+    CategoryRepository(Context context)
+    {
+        mContext = context;
+        mCategoryNames = context.getResources().getStringArray(R.array.global_titles);
+    }
+
+    /**
+     * @return the number of categories, in feed order
+     */
+    public int getCategoryCount()
+    {
+        return mCategoryNames.length;
+    }
+
+    /**
+     * @param category
+     * @return the events of the category, null if it hasn't been loaded yet
+     */
+    public EventSource get(int category)
+    {
+        return mCategories.get(category);
+    }
+
+    /**
+     * Get the events of a category.  If it is already loaded the listener is called right away, otherwise once
+     * the feed has been read up to it.
+     * @param category
+     * @param listener
+     */
+    public void request(int category, Listener listener)
+    {
+        EventSource events = mCategories.get(category);
+        if (events != null) {
+            listener.onCategoryReady(category, events);
+            return;
+        }
+
+        ArrayList<Listener> waiting = mWaiting.get(category);
+        if (waiting == null) {
+            waiting = new ArrayList<Listener>();
+            mWaiting.put(category, waiting);
+        }
+        if (!waiting.contains(listener)) {
+            waiting.add(listener);
+        }
+        if (mLoader == null) {
+            mFeedIndex = new FeedIndex(PAGE_SIZE);
+            mLoader = new FeedLoader(mContext, PAGE_SIZE, mFeedIndex, this);
+            mLoader.start();
+        }
+    }
+
+    /**
+     * Stop waiting for a category, the read itself carries on for the other categories and the cache
+     * @param category
+     * @param listener
+     */
+    public void cancel(int category, Listener listener)
+    {
+        ArrayList<Listener> waiting = mWaiting.get(category);
+        if (waiting != null) {
+            waiting.remove(listener);
+        }
+    }
+
+    /**
+     * Be told about every refreshed ranking of a category that is already showing
+     * @param listener
+     */
+    public void addRankingListener(RankingListener listener)
+    {
+        if (!mRankingListeners.contains(listener)) {
+            mRankingListeners.add(listener);
+        }
+    }
+
+    public void removeRankingListener(RankingListener listener)
+    {
+        mRankingListeners.remove(listener);
+    }
+
+    /**
+     * Rank the categories from the query log if there is one, see {@link QueryLogLoader} for where it is looked
+     * up.  The log is read once per process, in the background, and its rankings replace the ones from the feed
+     * once all of it has been read.  Categories the feed hasn't got to by then are ranked as they come in.
+     */
+    public void rankQueryLog()
+    {
+        if (!mLogRanked && mLogLoader == null) {
+            mLogLoader = new QueryLogLoader(mContext, QUERY_LOG, mCategoryNames, QUERY_COUNTERS, this);
+            mLogLoader.start();
+        }
+    }
+
+    /**
+     * Replace the events of a category, e.g. with a refreshed ranking
+     * @param category
+     * @param events
+     */
+    public void put(int category, EventSource events)
+    {
+        mCategories.put(category, events);
+    }
+
+    @Override
+    public void onCategoryLoaded(int index, String name, EventStore events, int total) {
+        if (mCategories.get(index) != null) {
+            return;
+        }
+
+        EventSource source = events;
+        if (total > events.size()) {
+            PagedEventList paged = new PagedEventList(new FeedPageSource(mContext, index, mFeedIndex), total,
+                    PAGE_SIZE, PREFETCH_DISTANCE, MAX_PAGES_AWAY);
+            paged.putPage(0, events);
+            source = paged;
+        }
+        mCategories.put(index, source);
+
+        //The log was read before the feed got here
+        EventStore ranking = rankFromLog(index);
+        if (ranking != null) {
+            mCategories.put(index, ranking);
+            source = ranking;
+        }
+
+        ArrayList<Listener> waiting = mWaiting.get(index);
+        if (waiting != null) {
+            mWaiting.remove(index);
+            for (Listener listener : waiting) {
+                listener.onCategoryReady(index, source);
+            }
+        }
+    }
+
+    @Override
+    public void onLogRanked(QueryLogRanker ranker) {
+        mLogLoader = null;
+        mLogRanked = true;
+        if (ranker == null) {
+            return;
+        }
+
+        mLogRanker = ranker;
+        for (int category = 0; category < mCategoryNames.length; category++) {
+            //The rest are ranked as the feed comes in, unless the feed has been read and doesn't have them
+            if (mCategories.get(category) != null || mFeedRead) {
+                publishRanking(category, rankFromLog(category));
+            }
+        }
+    }
+
+    /**
+     * Rank a category from the log against its events from the feed
+     * @param category
+     * @return null if the log hasn't been read or has nothing for the category
+     */
+    private EventStore rankFromLog(int category)
+    {
+        if (mLogRanker == null) {
+            return null;
+        }
+        //Events that are in the feed keep their image, queries that aren't get the generic one
+        EventStore ranking = mLogRanker.getRanking(category, RANKING_SIZE, getLoadedEvents(category),
+                R.drawable.img_video);
+        return ranking.size() > 0 ? ranking : null;
+    }
+
+    private void publishRanking(int category, EventStore ranking)
+    {
+        if (ranking == null) {
+            return;
+        }
+        mCategories.put(category, ranking);
+
+        ArrayList<Listener> waiting = mWaiting.get(category);
+        if (waiting != null) {
+            mWaiting.remove(category);
+            for (Listener listener : waiting) {
+                listener.onCategoryReady(category, ranking);
+            }
+        }
+        for (RankingListener listener : mRankingListeners) {
+            listener.onRankingUpdated(category, ranking);
+        }
+    }
+
+    /**
+     * The events of a category that are in memory, without paging anything in or out
+     * @param category
+     * @return null if the category isn't loaded
+     */
+    public EventStore getLoadedEvents(int category)
+    {
+        EventSource events = mCategories.get(category);
+        if (!(events instanceof PagedEventList)) {
+            return (EventStore) events;
+        }
+        PagedEventList paged = (PagedEventList) events;
+        EventStore loaded = new EventStore();
+        Event event = new Event();
+        for (int i = 0; i < paged.size(); i++) {
+            if (paged.peek(i, event) != null) {
+                loaded.add(event.eventTitle, event.eventShareLink, event.eventImageID, event.eventRank);
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public void onFeedLoaded() {
+        //Anyone still waiting asked for a category the feed doesn't have, or the read failed, the next request
+        //tries again
+        mLoader = null;
+        mFeedRead = true;
+        //Categories only the log has
+        for (int category = 0; category < mCategoryNames.length; category++) {
+            if (mCategories.get(category) == null) {
+                publishRanking(category, rankFromLog(category));
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package applico.googlezlpreview.data;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.JsonReader;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import applico.googlezlpreview.models.DetailContent;
+
+/**
+ * Reads the content of a detail tab from the bundled details asset, of the form
+ * <pre>
+ * { "events": [ { "title": "Gangnam Style",
+ *                 "summary": [ { "title": "About", "content": "..." } ],
+ *                 "stats": [ ... ],
+ *                 "tweets": [ ... ] } ] }
+ * </pre>
+ * Events are matched by title and the tab arrays are named like the global_details_titles.  Values of the form
+ * "@string/name" are read from the string resources so the text can be translated.  The asset is streamed and
+ * reading stops at the requested event.
+ */
+class DetailParser {
+
+    private static final String LOG_TAG = DetailParser.class.getSimpleName();
+
+    public static final String DETAILS_ASSET = "details.json";
+
+    private static final String STRING_PREFIX = "@string/";
+
+    private final Context mContext;
+
+    DetailParser(Context context)
+    {
+        mContext = context.getApplicationContext();
+    }
+
+    /**
+     * @param event title of the event
+     * @param tab name of the tab
+     * @return the content, empty if the asset has none for the event and tab
+     */
+    DetailContent read(String event, String tab)
+    {
+        JsonReader reader = null;
+        try {
+            reader = new JsonReader(new InputStreamReader(mContext.getAssets().open(DETAILS_ASSET), "UTF-8"));
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"events".equals(reader.nextName())) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    DetailContent content = readEvent(reader, event, tab);
+                    if (content != null) {
+                        return content;
+                    }
+                }
+                break;
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to read " + DETAILS_ASSET, e);
+        } finally {
+            FeedParser.closeQuietly(reader);
+        }
+        return new DetailContent();
+    }
+
+    /**
+     * @return the content of the tab if this is the event, null otherwise
+     */
+    private DetailContent readEvent(JsonReader reader, String event, String tab) throws IOException
+    {
+        String title = null;
+        DetailContent content = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if ("title".equals(field)) {
+                title = reader.nextString();
+            } else if (tab.equals(field)) {
+                content = readSections(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (!event.equals(title)) {
+            return null;
+        }
+        return content != null ? content : new DetailContent();
+    }
+
+    private DetailContent readSections(JsonReader reader) throws IOException
+    {
+        DetailContent content = new DetailContent();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String title = null;
+            String body = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if ("title".equals(field)) {
+                    title = resolve(reader.nextString());
+                } else if ("content".equals(field)) {
+                    body = resolve(reader.nextString());
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (body != null) {
+                content.addSection(title, body);
+            }
+        }
+        reader.endArray();
+        return content;
+    }
+
+    private String resolve(String value)
+    {
+        if (!value.startsWith(STRING_PREFIX)) {
+            return value;
+        }
+        Resources res = mContext.getResources();
+        int id = res.getIdentifier(value.substring(STRING_PREFIX.length()), "string", mContext.getPackageName());
+        return id != 0 ? res.getString(id) : value;
+    }
+}
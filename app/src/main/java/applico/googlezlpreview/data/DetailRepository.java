@@ -0,0 +1,145 @@
+package applico.googlezlpreview.data;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import applico.googlezlpreview.models.DetailContent;
+
+/**
+ * Process wide cache of the detail tab contents, keyed by event and tab.  Content is loaded on a background
+ * thread the first time it is asked for, requests for content that is already loading join that load, and
+ * loaded content (even when there is none) is kept, so a tab the pager destroys and recreates shows it again
+ * without going back to the asset.
+ * <p>
+ * All calls have to be made from the main thread.
+ */
+public class DetailRepository {
+
+    private static final String LOG_TAG = DetailRepository.class.getSimpleName();
+
+    //Tabs in the order of global_details_titles
+    public static final int TAB_SUMMARY = 0;
+    public static final int TAB_STATS = 1;
+    public static final int TAB_TWEETS = 2;
+    private static final String[] TAB_NAMES = {"summary", "stats", "tweets"};
+
+    //A few events worth of tabs
+    private static final int MAX_ENTRIES = 30;
+
+    private static DetailRepository sInstance;
+
+    private final DetailParser mParser;
+    private final LruCache<String, DetailContent> mCache = new LruCache<String, DetailContent>(MAX_ENTRIES);
+    private final HashMap<String, ArrayList<Listener>> mLoading = new HashMap<String, ArrayList<Listener>>();
+
+    /**
+     * Called on the main thread
+     */
+    public interface Listener {
+        public void onContentReady(String event, int tab, DetailContent content);
+    }
+
+    public static synchronized DetailRepository getInstance(Context context)
+    {
+        if (sInstance == null) {
+            sInstance = new DetailRepository(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private DetailRepository(Context context)
+    {
+        mParser = new DetailParser(context);
+    }
+
+    /**
+     * @param event
+     * @param tab
+     * @return the content if it is loaded, null otherwise
+     */
+    public DetailContent get(String event, int tab)
+    {
+        return mCache.get(getKey(event, tab));
+    }
+
+    /**
+     * Get the content of a tab.  If it is loaded the listener is called right away, otherwise once it is.
+     * @param event
+     * @param tab
+     * @param listener may be null to only get the content loading
+     */
+    public void request(String event, int tab, Listener listener)
+    {
+        String key = getKey(event, tab);
+        DetailContent content = mCache.get(key);
+        if (content != null) {
+            if (listener != null) {
+                listener.onContentReady(event, tab, content);
+            }
+            return;
+        }
+
+        ArrayList<Listener> waiting = mLoading.get(key);
+        if (waiting == null) {
+            waiting = new ArrayList<Listener>();
+            mLoading.put(key, waiting);
+            new LoadTask(event, tab, key).executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        }
+        if (listener != null && !waiting.contains(listener)) {
+            waiting.add(listener);
+        }
+    }
+
+    /**
+     * Stop waiting for a tab, the load itself finishes for the cache
+     * @param event
+     * @param tab
+     * @param listener
+     */
+    public void cancel(String event, int tab, Listener listener)
+    {
+        ArrayList<Listener> waiting = mLoading.get(getKey(event, tab));
+        if (waiting != null) {
+            waiting.remove(listener);
+        }
+    }
+
+    private static String getKey(String event, int tab)
+    {
+        return tab + ":" + event;
+    }
+
+    private class LoadTask extends AsyncTask<Void, Void, DetailContent> {
+
+        private final String mEvent;
+        private final int mTab;
+        private final String mKey;
+
+        LoadTask(String event, int tab, String key)
+        {
+            mEvent = event;
+            mTab = tab;
+            mKey = key;
+        }
+
+        @Override
+        protected DetailContent doInBackground(Void... params) {
+            return mParser.read(mEvent, TAB_NAMES[mTab]);
+        }
+
+        @Override
+        protected void onPostExecute(DetailContent content) {
+            mCache.put(mKey, content);
+            ArrayList<Listener> waiting = mLoading.remove(mKey);
+            if (waiting != null) {
+                for (Listener listener : waiting) {
+                    listener.onContentReady(mEvent, mTab, content);
+                }
+            }
+        }
+    }
+}
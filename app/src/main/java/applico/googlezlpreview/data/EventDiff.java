@@ -0,0 +1,239 @@
+package applico.googlezlpreview.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import applico.googlezlpreview.models.EventStore;
+
+/**
+ * The steps that turn one ranking into another, as adapter style insert/remove/move/change notifications.
+ * Events are matched by title, repeated titles are matched in order of appearance, and a matched event is
+ * changed when its rank, link or image differ.
+ * <p>
+ * Events that keep their relative order (the longest increasing run of old positions) stay put and everything
+ * else moves, so a refresh that moves a few events produces a few moves rather than a rebind of every row in
+ * between.  Computing a diff is plain Java and meant for a background thread, dispatching it belongs on the
+ * main thread.
+ */
+public class EventDiff {
+
+    private static final int OP_REMOVE = 0;
+    private static final int OP_INSERT = 1;
+    private static final int OP_MOVE = 2;
+    private static final int OP_CHANGE = 3;
+
+    /**
+     * Receives the steps in the order they have to be applied
+     */
+    public interface Callback {
+        public void onRemoved(int position);
+
+        public void onInserted(int position);
+
+        public void onMoved(int fromPosition, int toPosition);
+
+        public void onChanged(int position);
+    }
+
+    private int[] mOps = new int[16];
+    private int[] mFrom = new int[16];
+    private int[] mTo = new int[16];
+    private int mCount;
+
+    private EventDiff() {
+    }
+
+    /**
+     * @param oldList
+     * @param newList
+     * @return the steps from the old list to the new one
+     */
+    public static EventDiff compute(EventStore oldList, EventStore newList)
+    {
+        EventDiff diff = new EventDiff();
+        int oldSize = oldList.size();
+        int newSize = newList.size();
+
+        String[] oldKeys = keys(oldList);
+        String[] newKeys = keys(newList);
+        HashMap<String, Integer> newPositions = new HashMap<String, Integer>(newSize * 2);
+        for (int i = 0; i < newSize; i++) {
+            newPositions.put(newKeys[i], i);
+        }
+        HashMap<String, Integer> oldPositions = new HashMap<String, Integer>(oldSize * 2);
+        for (int i = 0; i < oldSize; i++) {
+            oldPositions.put(oldKeys[i], i);
+        }
+
+        //Removals, back to front so the positions stay valid
+        ArrayList<String> current = new ArrayList<String>(oldSize);
+        for (int i = 0; i < oldSize; i++) {
+            current.add(oldKeys[i]);
+        }
+        for (int i = oldSize - 1; i >= 0; i--) {
+            if (!newPositions.containsKey(oldKeys[i])) {
+                diff.add(OP_REMOVE, i, i);
+                current.remove(i);
+            }
+        }
+
+        //Events that keep their relative order don't need to move
+        int[] targets = new int[current.size()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = newPositions.get(current.get(i));
+        }
+        boolean[] settled = new boolean[newSize];
+        for (int target : longestIncreasingRun(targets)) {
+            settled[target] = true;
+        }
+
+        //Walk the new list, everything before j is already in its final place
+        for (int j = 0; j < newSize; j++) {
+            String key = newKeys[j];
+            if (!oldPositions.containsKey(key)) {
+                diff.add(OP_INSERT, j, j);
+                current.add(j, key);
+                settled[j] = true;
+                continue;
+            }
+            if (key.equals(current.get(j))) {
+                continue;
+            }
+            if (!settled[j]) {
+                int from = current.indexOf(key);
+                diff.add(OP_MOVE, from, j);
+                current.add(j, current.remove(from));
+                settled[j] = true;
+                continue;
+            }
+
+            //A settled event belongs here, so whatever is in the way moves on to sit after its predecessor
+            while (!key.equals(current.get(j))) {
+                String mover = current.remove(j);
+                int target = newPositions.get(mover);
+                int to = j + 1;
+                for (int p = target - 1; p >= j; p--) {
+                    if (settled[p]) {
+                        to = current.indexOf(newKeys[p]) + 1;
+                        break;
+                    }
+                }
+                current.add(to, mover);
+                diff.add(OP_MOVE, j, to);
+                settled[target] = true;
+            }
+        }
+
+        //Content changes, at the final positions
+        for (int j = 0; j < newSize; j++) {
+            Integer from = oldPositions.get(newKeys[j]);
+            if (from != null && !sameContent(oldList, from, newList, j)) {
+                diff.add(OP_CHANGE, j, j);
+            }
+        }
+        return diff;
+    }
+
+    public void dispatch(Callback callback)
+    {
+        for (int i = 0; i < mCount; i++) {
+            switch (mOps[i]) {
+                case OP_REMOVE:
+                    callback.onRemoved(mFrom[i]);
+                    break;
+                case OP_INSERT:
+                    callback.onInserted(mTo[i]);
+                    break;
+                case OP_MOVE:
+                    callback.onMoved(mFrom[i], mTo[i]);
+                    break;
+                case OP_CHANGE:
+                    callback.onChanged(mTo[i]);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @return the number of steps
+     */
+    public int size()
+    {
+        return mCount;
+    }
+
+    private void add(int op, int from, int to)
+    {
+        if (mCount == mOps.length) {
+            mOps = Arrays.copyOf(mOps, mCount * 2);
+            mFrom = Arrays.copyOf(mFrom, mCount * 2);
+            mTo = Arrays.copyOf(mTo, mCount * 2);
+        }
+        mOps[mCount] = op;
+        mFrom[mCount] = from;
+        mTo[mCount] = to;
+        mCount++;
+    }
+
+    /**
+     * Identity of every row, the title plus how many times it appeared before
+     */
+    private static String[] keys(EventStore list)
+    {
+        String[] keys = new String[list.size()];
+        HashMap<String, Integer> seen = new HashMap<String, Integer>();
+        for (int i = 0; i < keys.length; i++) {
+            String title = String.valueOf(list.getTitle(i));
+            Integer count = seen.get(title);
+            keys[i] = count == null ? title : title + '\u0000' + count;
+            seen.put(title, count == null ? 1 : count + 1);
+        }
+        return keys;
+    }
+
+    private static boolean sameContent(EventStore oldList, int oldPos, EventStore newList, int newPos)
+    {
+        String oldLink = oldList.getShareLink(oldPos);
+        String newLink = newList.getShareLink(newPos);
+        return oldList.getRank(oldPos) == newList.getRank(newPos)
+                && oldList.getImageId(oldPos) == newList.getImageId(newPos)
+                && (oldLink == null ? newLink == null : oldLink.equals(newLink));
+    }
+
+    /**
+     * Longest strictly increasing subsequence, patience sorting in O(n log n)
+     * @param values distinct values
+     * @return the values that make up the subsequence
+     */
+    static int[] longestIncreasingRun(int[] values)
+    {
+        int n = values.length;
+        int[] tails = new int[n];
+        int[] previous = new int[n];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            int lo = 0;
+            int hi = length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            previous[i] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = i;
+            if (lo == length) {
+                length++;
+            }
+        }
+
+        int[] run = new int[length];
+        for (int i = length - 1, k = length > 0 ? tails[length - 1] : -1; i >= 0; i--, k = previous[k]) {
+            run[i] = values[k];
+        }
+        return run;
+    }
+}
@@ -0,0 +1,199 @@
+package applico.googlezlpreview.data;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Byte offsets of the pages of every category in the feed, so a page can be read by skipping straight to it
+ * instead of parsing the feed up to it.  The index is built on the side of the first streamed read of the feed:
+ * the stream the JSON reader reads from is wrapped with {@link #wrap(InputStream)} and every byte that goes
+ * through it is run through a scanner that only follows nesting, strings and the "categories" and "events" keys.
+ * The offsets are of the opening brace of the first event of each page.
+ * <p>
+ * The scanner runs on the thread reading the feed, page starts can be looked up from any thread.  A category is
+ * complete once the reader is past it.
+ */
+class FeedIndex {
+
+    private static final byte[] CATEGORIES_KEY = {'c', 'a', 't', 'e', 'g', 'o', 'r', 'i', 'e', 's'};
+    private static final byte[] EVENTS_KEY = {'e', 'v', 'e', 'n', 't', 's'};
+
+    private final int mPageSize;
+    //Page starts by category, grown as the scanner gets to them
+    private long[][] mPageStarts = new long[0][];
+    private int[] mPageCounts = new int[0];
+
+    //Scanner state
+    private long mPosition;
+    private int mDepth;
+    private boolean mInString;
+    private boolean mEscape;
+    //What the last string read could be, the key of the value that follows it
+    private int mStringLength;
+    private boolean mCategoriesKey;
+    private boolean mEventsKey;
+    private boolean mInCategories;
+    private boolean mInEvents;
+    private int mCategory = -1;
+    private int mEvent;
+
+    /**
+     * @param pageSize events per page
+     */
+    FeedIndex(int pageSize)
+    {
+        mPageSize = pageSize;
+    }
+
+    int getPageSize()
+    {
+        return mPageSize;
+    }
+
+    /**
+     * @param in the feed from its first byte
+     * @return a stream that indexes everything read through it
+     */
+    InputStream wrap(InputStream in)
+    {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    scan(new byte[] {(byte) b}, 0, 1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int count) throws IOException {
+                int read = super.read(buffer, offset, count);
+                if (read > 0) {
+                    scan(buffer, offset, read);
+                }
+                return read;
+            }
+
+            @Override
+            public long skip(long count) throws IOException {
+                //Skipped bytes have to be scanned all the same
+                byte[] buffer = new byte[(int) Math.min(count, 4096)];
+                long skipped = 0;
+                while (skipped < count) {
+                    int read = read(buffer, 0, (int) Math.min(buffer.length, count - skipped));
+                    if (read < 0) {
+                        break;
+                    }
+                    skipped += read;
+                }
+                return skipped;
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param category
+     * @param page
+     * @return the byte offset of the first event of the page, or -1 if the scanner hasn't got to it
+     */
+    synchronized long getPageStart(int category, int page)
+    {
+        if (category >= mPageCounts.length || page >= mPageCounts[category]) {
+            return -1;
+        }
+        return mPageStarts[category][page];
+    }
+
+    synchronized void scan(byte[] buffer, int offset, int count)
+    {
+        for (int i = offset; i < offset + count; i++) {
+            scan(buffer[i]);
+            mPosition++;
+        }
+    }
+
+    private void scan(byte b)
+    {
+        if (mInString) {
+            if (mEscape) {
+                mEscape = false;
+            } else if (b == '\\') {
+                //Neither key has escapes
+                mEscape = true;
+                mCategoriesKey = false;
+                mEventsKey = false;
+            } else if (b == '"') {
+                mInString = false;
+                mCategoriesKey &= mStringLength == CATEGORIES_KEY.length;
+                mEventsKey &= mStringLength == EVENTS_KEY.length;
+            } else {
+                mCategoriesKey &= mStringLength < CATEGORIES_KEY.length && CATEGORIES_KEY[mStringLength] == b;
+                mEventsKey &= mStringLength < EVENTS_KEY.length && EVENTS_KEY[mStringLength] == b;
+                mStringLength++;
+            }
+            return;
+        }
+
+        switch (b) {
+            case '"':
+                mInString = true;
+                mStringLength = 0;
+                mCategoriesKey = true;
+                mEventsKey = true;
+                break;
+            case '{':
+            case '[':
+                //Nesting is root object, categories array, category object, events array, event object
+                if (b == '[' && mDepth == 1 && mCategoriesKey) {
+                    mInCategories = true;
+                } else if (b == '{' && mInCategories && mDepth == 2) {
+                    mCategory++;
+                    mEvent = 0;
+                } else if (b == '[' && mInCategories && mDepth == 3 && mEventsKey) {
+                    mInEvents = true;
+                } else if (b == '{' && mInEvents && mDepth == 4) {
+                    if (mEvent % mPageSize == 0) {
+                        addPageStart(mCategory, mPosition);
+                    }
+                    mEvent++;
+                }
+                mDepth++;
+                break;
+            case '}':
+            case ']':
+                mDepth--;
+                if (mInEvents && mDepth == 3) {
+                    mInEvents = false;
+                } else if (mInCategories && mDepth == 1) {
+                    mInCategories = false;
+                }
+                break;
+        }
+    }
+
+    private void addPageStart(int category, long position)
+    {
+        if (category >= mPageCounts.length) {
+            mPageStarts = Arrays.copyOf(mPageStarts, category + 1);
+            mPageCounts = Arrays.copyOf(mPageCounts, category + 1);
+        }
+        long[] starts = mPageStarts[category];
+        int count = mPageCounts[category];
+        if (starts == null) {
+            starts = new long[4];
+        } else if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+        }
+        starts[count] = position;
+        mPageStarts[category] = starts;
+        mPageCounts[category] = count + 1;
+    }
+}
@@ -0,0 +1,162 @@
+package applico.googlezlpreview.data;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.util.JsonReader;
+import android.util.Log;
+
+import java.io.IOException;
+
+import applico.googlezlpreview.models.EventStore;
+
+/**
+ * Streams the bundled Zeitgeist feed on a background thread and publishes every category on the main thread
+ * as soon as it has been parsed, so the first category can be shown before the rest of the file is read.
+ * <p>
+ * The feed is a JSON asset of the form
+ * <pre>
+ * { "year": 2012,
+ *   "categories": [ { "name": "searches",
+ *                     "events": [ { "title": "...", "share": "...", "image": "img_gangnam" } ] } ] }
+ * </pre>
+ * where the categories are in the same order as the global_titles tabs and "image" is the name of a drawable.
+ * Large categories can be published as just their first page, the rest is then read through a {@link FeedPageSource}.
+ */
+public class FeedLoader {
+
+    private static final String LOG_TAG = FeedLoader.class.getSimpleName();
+
+    private final Context mContext;
+    private final int mFirstPageSize;
+    private final FeedIndex mIndex;
+    private final Callbacks mCallbacks;
+    private LoadTask mTask;
+
+    /**
+     * Called on the main thread
+     */
+    public interface Callbacks {
+        /**
+         * @param index position of the category in the feed
+         * @param name
+         * @param events the first ranked events of the category, up to the first page size
+         * @param total the number of events in the category
+         */
+        public void onCategoryLoaded(int index, String name, EventStore events, int total);
+
+        /**
+         * The whole feed has been read, or reading it failed
+         */
+        public void onFeedLoaded();
+    }
+
+    /**
+     * @param context
+     * @param firstPageSize how many events of each category to publish, the rest are only counted
+     * @param index filled in with the page offsets of every category as the feed is read, may be null.  A
+     *              category's offsets are complete by the time it is published.
+     * @param callbacks
+     */
+    FeedLoader(Context context, int firstPageSize, FeedIndex index, Callbacks callbacks)
+    {
+        mContext = context.getApplicationContext();
+        mFirstPageSize = firstPageSize;
+        mIndex = index;
+        mCallbacks = callbacks;
+    }
+
+    public void start()
+    {
+        if (mTask == null) {
+            mTask = new LoadTask();
+            mTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        }
+    }
+
+    /**
+     * Stop reading, no callbacks are made after this
+     */
+    public void cancel()
+    {
+        if (mTask != null) {
+            mTask.cancel(false);
+        }
+    }
+
+    /**
+     * Holds a parsed category on its way to the main thread
+     */
+    private static class Category {
+        final int index;
+        final String name;
+        final EventStore events;
+        final int total;
+
+        Category(int index, String name, EventStore events, int total) {
+            this.index = index;
+            this.name = name;
+            this.events = events;
+            this.total = total;
+        }
+    }
+
+    private class LoadTask extends AsyncTask<Void, Category, Void> {
+
+        private final FeedParser mParser = new FeedParser(mContext);
+
+        @Override
+        protected Void doInBackground(Void... params) {
+            JsonReader reader = null;
+            try {
+                reader = mIndex != null ? mParser.open(mIndex.wrap(mParser.openAsset())) : mParser.open();
+                if (mParser.beginCategories(reader)) {
+                    readCategories(reader);
+                }
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Unable to read " + FeedParser.FEED_ASSET, e);
+            } finally {
+                FeedParser.closeQuietly(reader);
+            }
+            return null;
+        }
+
+        private void readCategories(JsonReader reader) throws IOException
+        {
+            int index = 0;
+            while (reader.hasNext() && !isCancelled()) {
+                String name = null;
+                int total = 0;
+                EventStore events = new EventStore();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String field = reader.nextName();
+                    if ("name".equals(field)) {
+                        name = reader.nextString();
+                    } else if ("events".equals(field)) {
+                        reader.beginArray();
+                        total = mParser.readEvents(reader, events, 0, mFirstPageSize, true);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                publishProgress(new Category(index++, name, events, total));
+            }
+        }
+
+        @Override
+        protected void onProgressUpdate(Category... categories) {
+            if (isCancelled()) {
+                return;
+            }
+            for (Category category : categories) {
+                mCallbacks.onCategoryLoaded(category.index, category.name, category.events, category.total);
+            }
+        }
+
+        @Override
+        protected void onPostExecute(Void result) {
+            mCallbacks.onFeedLoaded();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package applico.googlezlpreview.data;
+
+import android.content.Context;
+import android.util.JsonReader;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+
+import applico.googlezlpreview.models.EventStore;
+
+/**
+ * Pages of one feed category.  A page the {@link FeedIndex} knows the offset of is read by skipping the raw bytes
+ * up to it and parsing just the page, so reading any page costs the same however deep into the feed it is.
+ * Without an offset the feed is streamed up to the page and reading stops right after it.
+ */
+public class FeedPageSource implements PagedEventList.PageSource {
+
+    private static final String LOG_TAG = FeedPageSource.class.getSimpleName();
+
+    //Put in front of the bytes of a page, so they read as an array that runs on to the end of the category
+    private static final byte[] ARRAY_START = {'['};
+
+    private final FeedParser mParser;
+    private final int mCategory;
+    private final FeedIndex mIndex;
+
+    /**
+     * @param context
+     * @param category
+     * @param index offsets of the pages of the feed read the category came from, may be null
+     */
+    public FeedPageSource(Context context, int category, FeedIndex index)
+    {
+        mParser = new FeedParser(context);
+        mCategory = category;
+        mIndex = index;
+    }
+
+    @Override
+    public synchronized EventStore loadPage(int offset, int count) {
+        EventStore events = new EventStore(count);
+        JsonReader reader = null;
+        try {
+            int page = mIndex != null ? offset / mIndex.getPageSize() : 0;
+            long start = mIndex != null ? mIndex.getPageStart(mCategory, page) : -1;
+            if (start >= 0) {
+                reader = openAt(start);
+                reader.beginArray();
+                mParser.readEvents(reader, page * mIndex.getPageSize(), events, offset, count, false);
+                return events;
+            }
+
+            reader = mParser.open();
+            if (!mParser.beginCategories(reader)) {
+                return events;
+            }
+            for (int i = 0; i < mCategory && reader.hasNext(); i++) {
+                reader.skipValue();
+            }
+            if (reader.hasNext() && mParser.beginEvents(reader)) {
+                mParser.readEvents(reader, events, offset, count, false);
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to read page at " + offset + " of category " + mCategory, e);
+            return null;
+        } finally {
+            FeedParser.closeQuietly(reader);
+        }
+        return events;
+    }
+
+    /**
+     * Open the feed at an event, as the start of an array
+     * @param start byte offset of the event
+     * @return
+     * @throws IOException
+     */
+    private JsonReader openAt(long start) throws IOException
+    {
+        InputStream in = mParser.openAsset();
+        try {
+            long skipped = 0;
+            while (skipped < start) {
+                long step = in.skip(start - skipped);
+                if (step <= 0) {
+                    throw new IOException("Feed ends before " + start);
+                }
+                skipped += step;
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return mParser.open(new SequenceInputStream(new ByteArrayInputStream(ARRAY_START), in));
+    }
+}
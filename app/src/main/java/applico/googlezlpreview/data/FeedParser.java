@@ -0,0 +1,179 @@
+package applico.googlezlpreview.data;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.JsonReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+
+import applico.googlezlpreview.models.EventStore;
+
+/**
+ * Incremental reader for the bundled feed, shared by the loaders that stream it.  See {@link FeedLoader} for
+ * the format.  A parser is meant for one thread at a time.
+ */
+class FeedParser {
+
+    public static final String FEED_ASSET = "zeitgeist.json";
+
+    private final Context mContext;
+    private final HashMap<String, Integer> mDrawableIds = new HashMap<String, Integer>();
+
+    FeedParser(Context context)
+    {
+        mContext = context.getApplicationContext();
+    }
+
+    JsonReader open() throws IOException
+    {
+        return open(openAsset());
+    }
+
+    /**
+     * @return the raw bytes of the feed
+     * @throws IOException
+     */
+    InputStream openAsset() throws IOException
+    {
+        return mContext.getAssets().open(FEED_ASSET);
+    }
+
+    JsonReader open(InputStream in) throws IOException
+    {
+        return new JsonReader(new InputStreamReader(in, "UTF-8"));
+    }
+
+    /**
+     * Position the reader inside the categories array
+     * @param reader a freshly opened reader
+     * @return false if the feed has no categories
+     * @throws IOException
+     */
+    boolean beginCategories(JsonReader reader) throws IOException
+    {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("categories".equals(reader.nextName())) {
+                reader.beginArray();
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    /**
+     * Position the reader inside the events array of the category the reader is at
+     * @param reader
+     * @return false if the category has no events
+     * @throws IOException
+     */
+    boolean beginEvents(JsonReader reader) throws IOException
+    {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("events".equals(reader.nextName())) {
+                reader.beginArray();
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    /**
+     * Read the events array the reader is in.  Events in [offset, offset + limit) are added to the store ranked by
+     * their position, the others are skipped without being parsed.
+     * @param reader
+     * @param out
+     * @param offset
+     * @param limit
+     * @param readToEnd whether to keep skipping after the limit to count the events and consume the array, if
+     *                  false reading stops at the limit and the reader is left in the middle of the array
+     * @return the number of events in the array, or -1 if reading stopped at the limit
+     * @throws IOException
+     */
+    int readEvents(JsonReader reader, EventStore out, int offset, int limit, boolean readToEnd) throws IOException
+    {
+        return readEvents(reader, 0, out, offset, limit, readToEnd);
+    }
+
+    /**
+     * Same as {@link #readEvents(JsonReader, EventStore, int, int, boolean)} for a reader that is somewhere in the
+     * middle of the events array
+     * @param reader
+     * @param firstPosition position in the category of the event the reader is at
+     * @param out
+     * @param offset
+     * @param limit
+     * @param readToEnd
+     * @return the number of events from firstPosition to the end of the array, or -1 if reading stopped at the
+     *         limit
+     * @throws IOException
+     */
+    int readEvents(JsonReader reader, int firstPosition, EventStore out, int offset, int limit, boolean readToEnd)
+            throws IOException
+    {
+        int position = firstPosition;
+        while (reader.hasNext()) {
+            if (position - offset >= limit && !readToEnd) {
+                return -1;
+            }
+            if (position >= offset && position - offset < limit) {
+                readEvent(reader, out, position + 1);
+            } else {
+                reader.skipValue();
+            }
+            position++;
+        }
+        reader.endArray();
+        return position - firstPosition;
+    }
+
+    private void readEvent(JsonReader reader, EventStore out, int rank) throws IOException
+    {
+        String title = null;
+        String share = null;
+        int imageId = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if ("title".equals(field)) {
+                title = reader.nextString();
+            } else if ("share".equals(field)) {
+                share = reader.nextString();
+            } else if ("image".equals(field)) {
+                imageId = getDrawableId(reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        out.add(title, share, imageId, rank);
+    }
+
+    private int getDrawableId(String name)
+    {
+        Integer id = mDrawableIds.get(name);
+        if (id == null) {
+            Resources res = mContext.getResources();
+            id = res.getIdentifier(name, "drawable", mContext.getPackageName());
+            mDrawableIds.put(name, id);
+        }
+        return id;
+    }
+
+    static void closeQuietly(JsonReader reader)
+    {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                //Nothing left to do with it
+            }
+        }
+    }
+}
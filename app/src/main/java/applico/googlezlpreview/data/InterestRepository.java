@@ -0,0 +1,133 @@
+package applico.googlezlpreview.data;
+
+import android.os.AsyncTask;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import applico.googlezlpreview.models.TimeSeries;
+
+/**
+ * Search interest over the year for an event, one sample a minute.  Series are built on a background thread,
+ * requests for a series that is already being built join that build, and the last few are kept since the stats
+ * tab is recreated as the user swipes.
+ * <p>
+ * There is no interest service yet, until there is the series is synthesized from the event title: a daily
+ * rhythm, noise and a few bursts of attention that fade out, the same every time for the same event.
+ * All calls have to be made from the main thread.
+ */
+public class InterestRepository {
+
+    private static final String LOG_TAG = InterestRepository.class.getSimpleName();
+
+    private static final long MINUTE_MILLIS = 60 * 1000;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int SAMPLES = 365 * MINUTES_PER_DAY;
+    //2012-01-01T00:00:00Z
+    private static final long YEAR_START_MILLIS = 1325376000000L;
+
+    //A series with its levels is a few MB
+    private static final int MAX_SERIES = 2;
+    private static final int BURSTS = 5;
+
+    private static InterestRepository sInstance;
+
+    private final LruCache<String, TimeSeries> mCache = new LruCache<String, TimeSeries>(MAX_SERIES);
+    private final HashMap<String, ArrayList<Listener>> mLoading = new HashMap<String, ArrayList<Listener>>();
+
+    /**
+     * Called on the main thread
+     */
+    public interface Listener {
+        public void onInterestReady(String event, TimeSeries series);
+    }
+
+    public static synchronized InterestRepository getInstance()
+    {
+        if (sInstance == null) {
+            sInstance = new InterestRepository();
+        }
+        return sInstance;
+    }
+
+    private InterestRepository() {
+    }
+
+    /**
+     * Get the series of an event.  If it is cached the listener is called right away, otherwise once it is built.
+     * @param event
+     * @param listener
+     */
+    public void request(final String event, Listener listener)
+    {
+        TimeSeries series = mCache.get(event);
+        if (series != null) {
+            listener.onInterestReady(event, series);
+            return;
+        }
+
+        ArrayList<Listener> waiting = mLoading.get(event);
+        if (waiting == null) {
+            waiting = new ArrayList<Listener>();
+            mLoading.put(event, waiting);
+            new AsyncTask<Void, Void, TimeSeries>() {
+                @Override
+                protected TimeSeries doInBackground(Void... params) {
+                    return synthesize(event);
+                }
+
+                @Override
+                protected void onPostExecute(TimeSeries series) {
+                    mCache.put(event, series);
+                    ArrayList<Listener> waiting = mLoading.remove(event);
+                    if (waiting != null) {
+                        for (Listener listener : waiting) {
+                            listener.onInterestReady(event, series);
+                        }
+                    }
+                }
+            }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        }
+        if (!waiting.contains(listener)) {
+            waiting.add(listener);
+        }
+    }
+
+    public void cancel(String event, Listener listener)
+    {
+        ArrayList<Listener> waiting = mLoading.get(event);
+        if (waiting != null) {
+            waiting.remove(listener);
+        }
+    }
+
+    private static TimeSeries synthesize(String event)
+    {
+        Random random = new Random(event.hashCode());
+        float[] values = new float[SAMPLES];
+
+        int[] burstStarts = new int[BURSTS];
+        float[] burstHeights = new float[BURSTS];
+        float[] burstDecays = new float[BURSTS];
+        for (int i = 0; i < BURSTS; i++) {
+            burstStarts[i] = random.nextInt(SAMPLES);
+            burstHeights[i] = 20 + random.nextFloat() * 80;
+            //Half life between a few hours and a couple of weeks
+            burstDecays[i] = (float) Math.log(2) / (MINUTES_PER_DAY / 4 + random.nextInt(14 * MINUTES_PER_DAY));
+        }
+
+        for (int i = 0; i < SAMPLES; i++) {
+            double daily = Math.sin(2 * Math.PI * (i % MINUTES_PER_DAY) / MINUTES_PER_DAY);
+            float value = (float) (5 + 3 * daily + random.nextGaussian());
+            for (int b = 0; b < BURSTS; b++) {
+                if (i >= burstStarts[b]) {
+                    value += burstHeights[b] * Math.exp(-burstDecays[b] * (i - burstStarts[b]));
+                }
+            }
+            values[i] = Math.max(0, value);
+        }
+        return new TimeSeries(YEAR_START_MILLIS, MINUTE_MILLIS, values);
+    }
+}
@@ -0,0 +1,173 @@
+package applico.googlezlpreview.data;
+
+import android.os.AsyncTask;
+import android.util.SparseArray;
+
+import java.util.HashSet;
+
+import applico.googlezlpreview.models.Event;
+import applico.googlezlpreview.models.EventSource;
+import applico.googlezlpreview.models.EventStore;
+
+/**
+ * A ranked list that only keeps the pages around the current position in memory.  Every read through
+ * {@link #get(int, Event)} moves the current position: pages within the prefetch distance are loaded in the
+ * background and pages further away than the configured number of pages are dropped.  Rows that are not loaded
+ * yet read as null, the listener is told when their page arrives.
+ * <p>
+ * All calls have to be made from the main thread.
+ */
+public class PagedEventList implements EventSource {
+
+    private static final String LOG_TAG = PagedEventList.class.getSimpleName();
+
+    /**
+     * Loads a page of events, called on a background thread
+     */
+    public interface PageSource {
+        /**
+         * @param offset position of the first event
+         * @param count number of events to load, fewer are returned at the end of the list
+         * @return the events, ranked from offset + 1
+         */
+        public EventStore loadPage(int offset, int count);
+    }
+
+    /**
+     * Called on the main thread
+     */
+    public interface Listener {
+        public void onPageLoaded(int start, int count);
+    }
+
+    private final PageSource mSource;
+    private final int mSize;
+    private final int mPageSize;
+    private final int mPrefetchDistance;
+    private final int mMaxPagesAway;
+
+    private final SparseArray<EventStore> mPages = new SparseArray<EventStore>();
+    private final HashSet<Integer> mLoading = new HashSet<Integer>();
+    private int mCurrentPage;
+    private Listener mListener;
+
+    /**
+     * @param source
+     * @param size total number of events
+     * @param pageSize events per page
+     * @param prefetchDistance how many positions ahead of and behind the current one should be loaded
+     * @param maxPagesAway pages further than this from the current one are dropped, at least enough to cover
+     *                     the prefetch distance is always kept
+     */
+    public PagedEventList(PageSource source, int size, int pageSize, int prefetchDistance, int maxPagesAway)
+    {
+        mSource = source;
+        mSize = size;
+        mPageSize = pageSize;
+        mPrefetchDistance = prefetchDistance;
+        mMaxPagesAway = Math.max(maxPagesAway, (prefetchDistance + pageSize - 1) / pageSize);
+    }
+
+    public void setListener(Listener listener)
+    {
+        mListener = listener;
+    }
+
+    /**
+     * Seed a page that was loaded somewhere else, e.g. the first page that came with the feed
+     * @param page
+     * @param events
+     */
+    public void putPage(int page, EventStore events)
+    {
+        mPages.put(page, events);
+    }
+
+    @Override
+    public int size()
+    {
+        return mSize;
+    }
+
+    @Override
+    public Event get(int position, Event reuse)
+    {
+        int page = position / mPageSize;
+        if (page != mCurrentPage) {
+            mCurrentPage = page;
+            dropFarPages();
+        }
+        prefetch(position);
+        return peek(position, reuse);
+    }
+
+    /**
+     * Read a row without moving the current position, so nothing is loaded or dropped
+     * @param position
+     * @param reuse
+     * @return the filled event, or null if its page isn't loaded
+     */
+    public Event peek(int position, Event reuse)
+    {
+        int page = position / mPageSize;
+        EventStore events = mPages.get(page);
+        if (events == null || position - page * mPageSize >= events.size()) {
+            return null;
+        }
+        return events.get(position - page * mPageSize, reuse);
+    }
+
+    public int getPageSize()
+    {
+        return mPageSize;
+    }
+
+    private void prefetch(int position)
+    {
+        int first = Math.max(0, position - mPrefetchDistance) / mPageSize;
+        int last = Math.min(mSize - 1, position + mPrefetchDistance) / mPageSize;
+        for (int page = first; page <= last; page++) {
+            if (mPages.get(page) == null && !mLoading.contains(page)) {
+                mLoading.add(page);
+                new PageTask(page).executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+            }
+        }
+    }
+
+    private void dropFarPages()
+    {
+        for (int i = mPages.size() - 1; i >= 0; i--) {
+            if (Math.abs(mPages.keyAt(i) - mCurrentPage) > mMaxPagesAway) {
+                mPages.removeAt(i);
+            }
+        }
+    }
+
+    private class PageTask extends AsyncTask<Void, Void, EventStore> {
+
+        private final int mPage;
+
+        PageTask(int page)
+        {
+            mPage = page;
+        }
+
+        @Override
+        protected EventStore doInBackground(Void... params) {
+            return mSource.loadPage(mPage * mPageSize, mPageSize);
+        }
+
+        @Override
+        protected void onPostExecute(EventStore events) {
+            mLoading.remove(mPage);
+            //The list may have scrolled on while the page was loading
+            if (events == null || Math.abs(mPage - mCurrentPage) > mMaxPagesAway) {
+                return;
+            }
+            mPages.put(mPage, events);
+            if (mListener != null) {
+                mListener.onPageLoaded(mPage * mPageSize, events.size());
+            }
+        }
+    }
+}
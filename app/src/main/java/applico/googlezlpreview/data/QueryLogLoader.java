@@ -0,0 +1,127 @@
+package applico.googlezlpreview.data;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import applico.googlezlpreview.BuildConfig;
+
+/**
+ * Streams a query log through a {@link QueryLogRanker} on a background thread.  The log is read line by line
+ * through a fixed buffer, a multi gigabyte log takes as much memory as a small one.
+ * <p>
+ * Logs are looked up in the external files directory of the app, where they can be pushed with adb.
+ */
+public class QueryLogLoader {
+
+    private static final String LOG_TAG = QueryLogLoader.class.getSimpleName();
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    //Reading a long log takes minutes, that shouldn't hold up the image and page loads on the shared pool
+    private static final Executor LOG_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final Context mContext;
+    private final String mLogName;
+    private final String[] mCategories;
+    private final int mCounters;
+    private final Callbacks mCallbacks;
+    private LoadTask mTask;
+
+    /**
+     * Called on the main thread
+     */
+    public interface Callbacks {
+        /**
+         * @param ranker the counts of the whole log, null if there is no log or it could not be read
+         */
+        public void onLogRanked(QueryLogRanker ranker);
+    }
+
+    /**
+     * @param context
+     * @param logName name of the log file
+     * @param categories names of the categories, in feed order
+     * @param counters counters per category, see {@link QueryLogRanker}
+     * @param callbacks
+     */
+    public QueryLogLoader(Context context, String logName, String[] categories, int counters, Callbacks callbacks)
+    {
+        mContext = context.getApplicationContext();
+        mLogName = logName;
+        mCategories = categories;
+        mCounters = counters;
+        mCallbacks = callbacks;
+    }
+
+    public void start()
+    {
+        if (mTask == null) {
+            mTask = new LoadTask();
+            mTask.executeOnExecutor(LOG_EXECUTOR);
+        }
+    }
+
+    /**
+     * Stop reading, no callbacks are made after this
+     */
+    public void cancel()
+    {
+        if (mTask != null) {
+            mTask.cancel(false);
+        }
+    }
+
+    private class LoadTask extends AsyncTask<Void, Void, QueryLogRanker> {
+
+        @Override
+        protected QueryLogRanker doInBackground(Void... params) {
+            File dir = mContext.getExternalFilesDir(null);
+            File log = dir != null ? new File(dir, mLogName) : null;
+            if (log == null || !log.isFile()) {
+                return null;
+            }
+
+            long start = SystemClock.elapsedRealtime();
+            QueryLogRanker ranker = new QueryLogRanker(mCategories, mCounters);
+            BufferedReader reader = null;
+            try {
+                reader = new BufferedReader(new InputStreamReader(new FileInputStream(log), "UTF-8"), BUFFER_SIZE);
+                String line;
+                while ((line = reader.readLine()) != null && !isCancelled()) {
+                    ranker.offer(line);
+                }
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Unable to read " + log, e);
+                return null;
+            } finally {
+                if (reader != null) {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        //Nothing left to do with it
+                    }
+                }
+            }
+            if (BuildConfig.DEBUG) {
+                Log.d(LOG_TAG, "Ranked " + ranker.getLineCount() + " lines, skipped " + ranker.getSkippedCount()
+                        + ", in " + (SystemClock.elapsedRealtime() - start) + "ms");
+            }
+            return ranker;
+        }
+
+        @Override
+        protected void onPostExecute(QueryLogRanker ranker) {
+            mCallbacks.onLogRanked(ranker);
+        }
+    }
+}
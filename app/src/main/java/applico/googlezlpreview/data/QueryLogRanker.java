@@ -0,0 +1,174 @@
+package applico.googlezlpreview.data;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.Locale;
+
+import applico.googlezlpreview.models.Event;
+import applico.googlezlpreview.models.EventStore;
+
+/**
+ * Ranks the most searched queries of every category from a raw query log, one line at a time, so a log of any
+ * size is read in a single pass without holding on to it.  Every category counts its queries in a
+ * {@link SpaceSaving} of a fixed number of counters, which is all the memory the ranking takes.
+ * <p>
+ * A log line is tab separated:
+ * <pre>
+ * category \t query [\t count]
+ * </pre>
+ * where category is the name of a feed category and count defaults to 1.  Queries are compared ignoring case and
+ * extra whitespace.  Lines that don't parse or name another category are skipped.  Not thread safe.
+ */
+public class QueryLogRanker {
+
+    private static final String LOG_TAG = QueryLogRanker.class.getSimpleName();
+
+    //Same form as the links of the bundled feed
+    private static final String SHARE_LINK_PREFIX = "http://www.google.com/zeitgeist/2012/#search=";
+
+    private final String[] mCategories;
+    private final SpaceSaving[] mCounters;
+    private final StringBuilder mLabel = new StringBuilder();
+    private long mLines;
+    private long mSkipped;
+
+    /**
+     * @param categories names of the categories, in feed order
+     * @param counters counters per category, the top of a ranking is reliable for a good deal fewer queries than
+     *                 this
+     */
+    public QueryLogRanker(String[] categories, int counters)
+    {
+        mCategories = categories;
+        mCounters = new SpaceSaving[categories.length];
+        for (int i = 0; i < categories.length; i++) {
+            mCounters[i] = new SpaceSaving(counters);
+        }
+    }
+
+    /**
+     * Count one line of the log
+     * @param line
+     * @return false if the line was skipped
+     */
+    public boolean offer(String line)
+    {
+        mLines++;
+        int categoryEnd = line.indexOf('\t');
+        int category = categoryEnd > 0 ? findCategory(line, categoryEnd) : -1;
+        if (category < 0) {
+            mSkipped++;
+            return false;
+        }
+
+        int queryEnd = line.indexOf('\t', categoryEnd + 1);
+        long weight = 1;
+        if (queryEnd < 0) {
+            queryEnd = line.length();
+        } else {
+            try {
+                weight = Long.parseLong(line.substring(queryEnd + 1).trim());
+            } catch (NumberFormatException e) {
+                weight = -1;
+            }
+        }
+        String label = normalize(line, categoryEnd + 1, queryEnd);
+        if (label.length() == 0 || weight <= 0) {
+            mSkipped++;
+            return false;
+        }
+        mCounters[category].offer(label.toLowerCase(Locale.US), label, weight);
+        return true;
+    }
+
+    public long getLineCount()
+    {
+        return mLines;
+    }
+
+    public long getSkippedCount()
+    {
+        return mSkipped;
+    }
+
+    /**
+     * The most searched queries of a category as a ranking.  Queries that are events of the category already keep
+     * their link and image, new ones get a search link and the default image.
+     * @param category
+     * @param n maximum number of events
+     * @param known current events of the category, may be null
+     * @param defaultImageId
+     * @return
+     */
+    public EventStore getRanking(int category, int n, EventStore known, int defaultImageId)
+    {
+        HashMap<String, Integer> knownTitles = new HashMap<String, Integer>();
+        Event event = new Event();
+        if (known != null) {
+            for (int i = 0; i < known.size(); i++) {
+                String title = known.getTitle(i);
+                if (title != null) {
+                    knownTitles.put(title.toLowerCase(Locale.US), i);
+                }
+            }
+        }
+
+        SpaceSaving counters = mCounters[category];
+        int[] slots = counters.top(n);
+        EventStore ranking = new EventStore(slots.length);
+        for (int slot : slots) {
+            Integer position = knownTitles.get(counters.getKey(slot));
+            if (position != null) {
+                known.get(position, event);
+                ranking.add(event.eventTitle, event.eventShareLink, event.eventImageID);
+            } else {
+                String label = counters.getLabel(slot);
+                ranking.add(label, getShareLink(label), defaultImageId);
+            }
+        }
+        return ranking;
+    }
+
+    private int findCategory(String line, int end)
+    {
+        for (int i = 0; i < mCategories.length; i++) {
+            String name = mCategories[i];
+            if (name.length() == end && line.regionMatches(true, 0, name, 0, end)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Trim the query and collapse its runs of whitespace into single spaces
+     */
+    private String normalize(String line, int start, int end)
+    {
+        mLabel.setLength(0);
+        boolean space = false;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = mLabel.length() > 0;
+            } else {
+                if (space) {
+                    mLabel.append(' ');
+                    space = false;
+                }
+                mLabel.append(c);
+            }
+        }
+        return mLabel.toString();
+    }
+
+    private static String getShareLink(String query)
+    {
+        try {
+            return SHARE_LINK_PREFIX + URLEncoder.encode(query, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package applico.googlezlpreview.data;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Locale;
+
+import applico.googlezlpreview.models.EventStore;
+
+/**
+ * In-memory index of event titles for search as you type.  Every category is its own {@link Segment}: the words
+ * of its titles, lower cased and sorted, each pointing back at its event.  A word of the query matches every
+ * title word it is a prefix of, found with a binary search and a scan of the matching run, and an event is a
+ * result when all words of the query match one of its words.
+ * <p>
+ * Results are ranked by how well they match, a whole word beats a prefix and a match on the first word of the
+ * title beats one further in, then by their rank in the category.  The same title in several categories is only
+ * returned once.
+ * <p>
+ * Segments can be built on any thread and are immutable apart from their scratch arrays, which is what lets a
+ * query run without allocating per event.  Adding segments and searching have to happen on one thread.
+ */
+public class SearchIndex {
+
+    private static final String LOG_TAG = SearchIndex.class.getSimpleName();
+
+    //Score of one query word, a result scores the sum over the words of the query
+    private static final int PREFIX_SCORE = 1;
+    private static final int WORD_SCORE = 2;
+    private static final int FIRST_WORD_SCORE = 2;
+    //Scores are stored inverted in the sort keys, so they sort best first
+    private static final int MAX_SCORE = 0x7fff;
+
+    private Segment[] mSegments = new Segment[0];
+    private long[] mCandidates = new long[64];
+    //Tells the scratch arrays of the segments from the previous query apart
+    private int mQueryStamp;
+
+    /**
+     * The searchable words of one category
+     */
+    public static class Segment {
+
+        private final int mCategory;
+        private final EventStore mEvents;
+        //Sorted words and for each the position of its event and whether it is the first word of the title
+        private final String[] mWords;
+        private final int[] mPositions;
+        private final boolean[] mFirstWords;
+
+        //Scratch per event, only valid for events whose stamp is the current query's
+        private final int[] mStamps;
+        private final int[] mMatched;
+        private final int[] mLastWord;
+        //Score of the last matched query word, and the total so far
+        private final int[] mWordScores;
+        private final int[] mScores;
+        //Where the candidate of the event is once it matched the last query word
+        private final int[] mCandidates;
+
+        private Segment(int category, EventStore events, String[] words, int[] positions, boolean[] firstWords)
+        {
+            mCategory = category;
+            mEvents = events;
+            mWords = words;
+            mPositions = positions;
+            mFirstWords = firstWords;
+            int size = events.size();
+            mStamps = new int[size];
+            mMatched = new int[size];
+            mLastWord = new int[size];
+            mWordScores = new int[size];
+            mScores = new int[size];
+            mCandidates = new int[size];
+        }
+
+        public int getCategory()
+        {
+            return mCategory;
+        }
+
+        public int getWordCount()
+        {
+            return mWords.length;
+        }
+
+        /**
+         * @param word
+         * @return index of the first word that is not smaller than the given one
+         */
+        private int lowerBound(String word)
+        {
+            int low = 0;
+            int high = mWords.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (mWords[mid].compareTo(word) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Index the titles of a category.  This sorts every word of the category, build segments off the main thread.
+     * @param category
+     * @param events not modified afterwards
+     * @return
+     */
+    public static Segment buildSegment(int category, EventStore events)
+    {
+        int size = events.size();
+        String[][] titleWords = new String[size][];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            titleWords[i] = tokenize(events.getTitle(i));
+            count += titleWords[i].length;
+        }
+
+        final String[] words = new String[count];
+        final int[] positions = new int[count];
+        boolean[] firstWords = new boolean[count];
+        Integer[] order = new Integer[count];
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < titleWords[i].length; j++) {
+                words[next] = titleWords[i][j];
+                positions[next] = i;
+                firstWords[next] = j == 0;
+                order[next] = next;
+                next++;
+            }
+        }
+        //Equal words stay in ranking order
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                int result = words[lhs].compareTo(words[rhs]);
+                return result != 0 ? result : positions[lhs] - positions[rhs];
+            }
+        });
+
+        String[] sortedWords = new String[count];
+        int[] sortedPositions = new int[count];
+        boolean[] sortedFirstWords = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            sortedWords[i] = words[order[i]];
+            sortedPositions[i] = positions[order[i]];
+            sortedFirstWords[i] = firstWords[order[i]];
+        }
+        return new Segment(category, events, sortedWords, sortedPositions, sortedFirstWords);
+    }
+
+    /**
+     * Make a segment searchable, it replaces any earlier segment of the same category
+     * @param segment
+     */
+    public void add(Segment segment)
+    {
+        for (int i = 0; i < mSegments.length; i++) {
+            if (mSegments[i].mCategory == segment.mCategory) {
+                mSegments[i] = segment;
+                return;
+            }
+        }
+        mSegments = Arrays.copyOf(mSegments, mSegments.length + 1);
+        mSegments[mSegments.length - 1] = segment;
+        //Results from earlier categories win ties
+        Arrays.sort(mSegments, new Comparator<Segment>() {
+            @Override
+            public int compare(Segment lhs, Segment rhs) {
+                return lhs.mCategory - rhs.mCategory;
+            }
+        });
+    }
+
+    public int getSegmentCount()
+    {
+        return mSegments.length;
+    }
+
+    /**
+     * Find the events whose titles match every word of the query
+     * @param query
+     * @param limit maximum number of results
+     * @return the results, ranked from 1
+     */
+    public EventStore search(String query, int limit)
+    {
+        String[] terms = tokenize(query);
+        if (terms.length == 0 || limit <= 0) {
+            return new EventStore();
+        }
+
+        mQueryStamp++;
+        int candidates = 0;
+        for (int s = 0; s < mSegments.length; s++) {
+            Segment segment = mSegments[s];
+            for (int t = 0; t < terms.length; t++) {
+                String term = terms[t];
+                boolean last = t == terms.length - 1;
+                for (int i = segment.lowerBound(term); i < segment.mWords.length; i++) {
+                    String word = segment.mWords[i];
+                    if (!word.startsWith(term)) {
+                        break;
+                    }
+                    int position = segment.mPositions[i];
+                    if (t == 0) {
+                        if (segment.mStamps[position] != mQueryStamp) {
+                            segment.mStamps[position] = mQueryStamp;
+                            segment.mMatched[position] = 0;
+                            segment.mLastWord[position] = -1;
+                            segment.mScores[position] = 0;
+                        }
+                    } else if (segment.mStamps[position] != mQueryStamp
+                            || segment.mMatched[position] < t) {
+                        //Missed one of the earlier words
+                        continue;
+                    }
+                    int score = (word.length() == term.length() ? WORD_SCORE : PREFIX_SCORE)
+                            + (segment.mFirstWords[i] ? FIRST_WORD_SCORE : 0);
+                    if (segment.mLastWord[position] == t) {
+                        //Another word of the title matches the same query word, it counts the best of them
+                        int gain = score - segment.mWordScores[position];
+                        if (gain > 0) {
+                            segment.mWordScores[position] = score;
+                            segment.mScores[position] += gain;
+                            if (last) {
+                                mCandidates[segment.mCandidates[position]]
+                                        = toKey(segment.mScores[position], position, s);
+                            }
+                        }
+                        continue;
+                    }
+                    segment.mLastWord[position] = t;
+                    segment.mWordScores[position] = score;
+                    segment.mMatched[position]++;
+                    segment.mScores[position] += score;
+                    if (last) {
+                        if (candidates == mCandidates.length) {
+                            mCandidates = Arrays.copyOf(mCandidates, candidates * 2);
+                        }
+                        segment.mCandidates[position] = candidates;
+                        mCandidates[candidates++] = toKey(segment.mScores[position], position, s);
+                    }
+                }
+            }
+        }
+
+        Arrays.sort(mCandidates, 0, candidates);
+        EventStore results = new EventStore(Math.min(candidates, limit));
+        HashSet<String> titles = new HashSet<String>();
+        for (int i = 0; i < candidates && results.size() < limit; i++) {
+            long key = mCandidates[i];
+            EventStore events = mSegments[(int) (key & 0xff)].mEvents;
+            int position = (int) ((key >>> 8) & 0xffffffffL);
+            String title = events.getTitle(position);
+            if (titles.add(title)) {
+                results.add(title, events.getShareLink(position), events.getImageId(position));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Best score first, then the best ranked, then the first category
+     */
+    private static long toKey(int score, int position, int segment)
+    {
+        return ((long) (MAX_SCORE - Math.min(score, MAX_SCORE)) << 40) | ((long) position << 8) | segment;
+    }
+
+    /**
+     * Split text into lower cased words of letters and digits
+     * @param text may be null
+     * @return
+     */
+    static String[] tokenize(String text)
+    {
+        if (text == null) {
+            return new String[0];
+        }
+        String lower = text.toLowerCase(Locale.US);
+        int count = 0;
+        boolean inWord = false;
+        for (int i = 0; i < lower.length(); i++) {
+            boolean letter = Character.isLetterOrDigit(lower.charAt(i));
+            if (letter && !inWord) {
+                count++;
+            }
+            inWord = letter;
+        }
+
+        String[] words = new String[count];
+        int next = 0;
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean letter = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                words[next++] = lower.substring(start, i);
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,134 @@
+package applico.googlezlpreview.data;
+
+import android.content.Context;
+import android.os.AsyncTask;
+
+import applico.googlezlpreview.models.EventSource;
+import applico.googlezlpreview.models.EventStore;
+
+/**
+ * Process wide search over the events of every category.  The index is built from the {@link CategoryRepository}:
+ * search asks it for every category, which shares the one read of the feed the lists use, and indexes each
+ * category as soon as it comes in, so search works on the first categories while the rest are still being read.
+ * Rankings that replace a category later, e.g. from the query log, replace its part of the index too.  Long
+ * categories are searched through the events the repository keeps in memory.  The listener is told whenever
+ * more of the feed is searchable, to refresh its results.
+ * <p>
+ * All calls have to be made from the main thread, searches run right on it.
+ */
+public class SearchRepository implements CategoryRepository.Listener, CategoryRepository.RankingListener {
+
+    private static final String LOG_TAG = SearchRepository.class.getSimpleName();
+
+    private static SearchRepository sInstance;
+
+    private final CategoryRepository mCategories;
+    private final SearchIndex mIndex = new SearchIndex();
+    //Latest segment build per category, an older build that finishes late is dropped
+    private final int[] mGenerations;
+    private boolean mStarted;
+    private Listener mListener;
+
+    /**
+     * Called on the main thread
+     */
+    public interface Listener {
+        public void onIndexUpdated();
+    }
+
+    public static synchronized SearchRepository getInstance(Context context)
+    {
+        if (sInstance == null) {
+            sInstance = new SearchRepository(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private SearchRepository(Context context)
+    {
+        mCategories = CategoryRepository.getInstance(context);
+        mGenerations = new int[mCategories.getCategoryCount()];
+    }
+
+    public void setListener(Listener listener)
+    {
+        mListener = listener;
+    }
+
+    /**
+     * Start indexing the categories.  Categories that are not loaded yet are requested, a read of the feed that
+     * failed is retried.
+     */
+    public void start()
+    {
+        if (!mStarted) {
+            mStarted = true;
+            mCategories.addRankingListener(this);
+        }
+        for (int category = 0; category < mGenerations.length; category++) {
+            if (mGenerations[category] == 0) {
+                mCategories.request(category, this);
+            }
+        }
+    }
+
+    /**
+     * Search the categories indexed so far
+     * @param query
+     * @param limit maximum number of results
+     * @return the results, ranked from 1
+     */
+    public EventStore search(String query, int limit)
+    {
+        return mIndex.search(query, limit);
+    }
+
+    @Override
+    public void onCategoryReady(int category, EventSource events) {
+        index(category);
+    }
+
+    @Override
+    public void onRankingUpdated(int category, EventStore ranking) {
+        index(category);
+    }
+
+    private void index(int category)
+    {
+        EventStore events = mCategories.getLoadedEvents(category);
+        if (events != null) {
+            new SegmentTask(category, ++mGenerations[category], events)
+                    .executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        }
+    }
+
+    private class SegmentTask extends AsyncTask<Void, Void, SearchIndex.Segment> {
+
+        private final int mCategory;
+        private final int mGeneration;
+        private final EventStore mEvents;
+
+        SegmentTask(int category, int generation, EventStore events)
+        {
+            mCategory = category;
+            mGeneration = generation;
+            mEvents = events;
+        }
+
+        @Override
+        protected SearchIndex.Segment doInBackground(Void... params) {
+            return SearchIndex.buildSegment(mCategory, mEvents);
+        }
+
+        @Override
+        protected void onPostExecute(SearchIndex.Segment segment) {
+            if (mGeneration != mGenerations[mCategory]) {
+                return;
+            }
+            mIndex.add(segment);
+            if (mListener != null) {
+                mListener.onIndexUpdated();
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package applico.googlezlpreview.data;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/**
+ * Approximate counts of the most frequent items of a stream in a fixed number of counters, the Space-Saving
+ * algorithm of Metwally, Agrawal and El Abbadi.  An item without a counter takes over the smallest one and
+ * inherits its count as the possible overcount.  Counts never undercount, overcount by at most the total weight
+ * divided by the capacity, and every item more frequent than that is guaranteed to have a counter.
+ * <p>
+ * The counters are kept in a min heap on their count, so finding the smallest one is free and an update moves one
+ * counter down at most log(capacity) levels.  The heap only orders slot numbers, moving a counter doesn't touch
+ * the lookup from item to counter.  Not thread safe.
+ */
+public class SpaceSaving {
+
+    private final int mCapacity;
+    //Counters by slot, a slot keeps its place and only changes hands when its item is replaced
+    private final String[] mKeys;
+    private final String[] mLabels;
+    private final long[] mCounts;
+    private final long[] mErrors;
+    private final HashMap<String, Integer> mSlots;
+    //Slots in heap order, the smallest count at 0, and where each slot is in the heap
+    private final int[] mHeap;
+    private final int[] mHeapIndex;
+    private int mSize;
+    private long mTotal;
+
+    /**
+     * @param capacity number of counters, the memory used stays bounded by it no matter how long the stream
+     */
+    public SpaceSaving(int capacity)
+    {
+        mCapacity = Math.max(capacity, 1);
+        mKeys = new String[mCapacity];
+        mLabels = new String[mCapacity];
+        mCounts = new long[mCapacity];
+        mErrors = new long[mCapacity];
+        mSlots = new HashMap<String, Integer>(mCapacity * 2);
+        mHeap = new int[mCapacity];
+        mHeapIndex = new int[mCapacity];
+    }
+
+    /**
+     * Count an occurrence of an item
+     * @param key identity of the item
+     * @param label how to show the item, kept from when the item got its counter
+     * @param weight how many times it occurred
+     */
+    public void offer(String key, String label, long weight)
+    {
+        mTotal += weight;
+        Integer slot = mSlots.get(key);
+        if (slot != null) {
+            mCounts[slot] += weight;
+            siftDown(mHeapIndex[slot]);
+            return;
+        }
+        if (mSize < mCapacity) {
+            int free = mSize++;
+            set(free, key, label, weight, 0);
+            mHeap[free] = free;
+            mHeapIndex[free] = free;
+            siftUp(free);
+            return;
+        }
+        //Take over the smallest counter
+        int smallest = mHeap[0];
+        mSlots.remove(mKeys[smallest]);
+        set(smallest, key, label, mCounts[smallest] + weight, mCounts[smallest]);
+        siftDown(0);
+    }
+
+    public int size()
+    {
+        return mSize;
+    }
+
+    /**
+     * @return the weight of everything offered so far
+     */
+    public long getTotal()
+    {
+        return mTotal;
+    }
+
+    /**
+     * The counters of the most frequent items
+     * @param n maximum number of counters
+     * @return slots for {@link #getKey(int)} and the other getters, ordered by count less error.  They are only
+     *         valid until the next offer.
+     */
+    public int[] top(int n)
+    {
+        Integer[] order = new Integer[mSize];
+        for (int i = 0; i < mSize; i++) {
+            order[i] = i;
+        }
+        //By the count the item is guaranteed to have, a counter that was just taken over carries the count of the
+        //item before it and would otherwise crowd out the items that were counted all along
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                long lhsCount = mCounts[lhs] - mErrors[lhs];
+                long rhsCount = mCounts[rhs] - mErrors[rhs];
+                if (lhsCount != rhsCount) {
+                    return lhsCount > rhsCount ? -1 : 1;
+                }
+                return mCounts[lhs] > mCounts[rhs] ? -1 : (mCounts[lhs] == mCounts[rhs] ? 0 : 1);
+            }
+        });
+        int[] slots = new int[Math.min(n, mSize)];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = order[i];
+        }
+        return slots;
+    }
+
+    public String getKey(int slot)
+    {
+        return mKeys[slot];
+    }
+
+    public String getLabel(int slot)
+    {
+        return mLabels[slot];
+    }
+
+    /**
+     * @param slot
+     * @return the estimated count, at least the true count
+     */
+    public long getCount(int slot)
+    {
+        return mCounts[slot];
+    }
+
+    /**
+     * @param slot
+     * @return by how much the count may be over the true count
+     */
+    public long getError(int slot)
+    {
+        return mErrors[slot];
+    }
+
+    private void set(int slot, String key, String label, long count, long error)
+    {
+        mKeys[slot] = key;
+        mLabels[slot] = label;
+        mCounts[slot] = count;
+        mErrors[slot] = error;
+        mSlots.put(key, slot);
+    }
+
+    private void siftUp(int index)
+    {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (mCounts[mHeap[parent]] <= mCounts[mHeap[index]]) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index)
+    {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < mSize && mCounts[mHeap[left]] < mCounts[mHeap[smallest]]) {
+                smallest = left;
+            }
+            if (right < mSize && mCounts[mHeap[right]] < mCounts[mHeap[smallest]]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int i, int j)
+    {
+        int slot = mHeap[i];
+        mHeap[i] = mHeap[j];
+        mHeap[j] = slot;
+        mHeapIndex[mHeap[i]] = i;
+        mHeapIndex[mHeap[j]] = j;
+    }
+}
@@ -0,0 +1,75 @@
+package applico.googlezlpreview.data;
+
+import applico.googlezlpreview.models.TweetWindow;
+
+/**
+ * Fixed capacity hand over of posts from the thread reading a stream to the UI.  A full buffer blocks the reader
+ * until the UI has drained it, so a stream that produces faster than the UI consumes is slowed down at the
+ * source instead of growing memory.
+ */
+public class TweetRingBuffer {
+
+    private final String[] mAuthors;
+    private final String[] mTexts;
+    private int mHead;
+    private int mSize;
+    private boolean mClosed;
+
+    public TweetRingBuffer(int capacity)
+    {
+        mAuthors = new String[capacity];
+        mTexts = new String[capacity];
+    }
+
+    /**
+     * Add a post, waiting for room if the buffer is full
+     * @param author
+     * @param text
+     * @return false if the buffer was closed, the post is dropped
+     * @throws InterruptedException
+     */
+    public synchronized boolean put(String author, String text) throws InterruptedException
+    {
+        while (mSize == mAuthors.length && !mClosed) {
+            wait();
+        }
+        if (mClosed) {
+            return false;
+        }
+        int tail = (mHead + mSize) % mAuthors.length;
+        mAuthors[tail] = author;
+        mTexts[tail] = text;
+        mSize++;
+        return true;
+    }
+
+    /**
+     * Move everything buffered into the window, oldest first so the window ends up newest first
+     * @param window
+     * @return how many posts were moved
+     */
+    public synchronized int drainTo(TweetWindow window)
+    {
+        int count = mSize;
+        for (int i = 0; i < count; i++) {
+            window.add(mAuthors[mHead], mTexts[mHead]);
+            mAuthors[mHead] = null;
+            mTexts[mHead] = null;
+            mHead = (mHead + 1) % mAuthors.length;
+        }
+        mSize = 0;
+        if (count > 0) {
+            notifyAll();
+        }
+        return count;
+    }
+
+    /**
+     * Wake up and refuse any further puts
+     */
+    public synchronized void close()
+    {
+        mClosed = true;
+        notifyAll();
+    }
+}
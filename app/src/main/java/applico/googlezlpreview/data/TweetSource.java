@@ -0,0 +1,20 @@
+package applico.googlezlpreview.data;
+
+import java.io.IOException;
+
+/**
+ * A stream of posts, read one at a time on a background thread
+ */
+public interface TweetSource {
+
+    /**
+     * Block until the next post is available
+     * @param post filled with the author at 0 and the text at 1
+     * @return false at the end of the stream
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public boolean next(String[] post) throws IOException, InterruptedException;
+
+    public void close();
+}
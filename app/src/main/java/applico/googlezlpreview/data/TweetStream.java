@@ -0,0 +1,127 @@
+package applico.googlezlpreview.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import applico.googlezlpreview.models.TweetWindow;
+
+/**
+ * Feeds a {@link TweetWindow} from a {@link TweetSource}.  A background thread reads the source into a
+ * {@link TweetRingBuffer}, which slows the thread down when the UI falls behind.  The UI side drains the buffer
+ * at most once per frame: the first post after a drain schedules a frame callback and everything that arrives
+ * until that frame is coalesced into a single update.
+ * <p>
+ * Start and stop from the main thread, the listener is called on it.  A stream runs once, make a new one to
+ * resume after stopping.
+ */
+public class TweetStream implements Choreographer.FrameCallback {
+
+    private static final String LOG_TAG = TweetStream.class.getSimpleName();
+
+    /**
+     * Called on the main thread, at most once per frame
+     */
+    public interface Listener {
+        /**
+         * @param added how many posts went into the window, older ones may have dropped out of it
+         */
+        public void onTweetsAdded(int added);
+    }
+
+    private final TweetSource mSource;
+    private final TweetRingBuffer mBuffer;
+    private final TweetWindow mWindow;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    //Set by the reader when it adds to an empty buffer, cleared by the frame that drains it
+    private final AtomicBoolean mFramePending = new AtomicBoolean();
+    private Listener mListener;
+    private Thread mThread;
+
+    private final Runnable mScheduleFrame = new Runnable() {
+        @Override
+        public void run() {
+            if (mThread != null) {
+                Choreographer.getInstance().postFrameCallback(TweetStream.this);
+            }
+        }
+    };
+
+    /**
+     * @param source
+     * @param bufferCapacity posts the reader can get ahead of the UI
+     * @param window
+     */
+    public TweetStream(TweetSource source, int bufferCapacity, TweetWindow window)
+    {
+        mSource = source;
+        mBuffer = new TweetRingBuffer(bufferCapacity);
+        mWindow = window;
+    }
+
+    public void start(Listener listener)
+    {
+        if (mThread != null) {
+            return;
+        }
+        mListener = listener;
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                read();
+            }
+        }, LOG_TAG);
+        mThread.setPriority(Thread.MIN_PRIORITY);
+        mThread.start();
+    }
+
+    /**
+     * Stop reading, the window keeps what it has
+     */
+    public void stop()
+    {
+        if (mThread == null) {
+            return;
+        }
+        mBuffer.close();
+        mThread.interrupt();
+        mThread = null;
+        mListener = null;
+        mHandler.removeCallbacks(mScheduleFrame);
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFramePending.set(false);
+        int added = mBuffer.drainTo(mWindow);
+        if (added > 0 && mListener != null) {
+            mListener.onTweetsAdded(added);
+        }
+    }
+
+    private void read()
+    {
+        String[] post = new String[2];
+        try {
+            while (mSource.next(post)) {
+                if (!mBuffer.put(post[0], post[1])) {
+                    break;
+                }
+                if (mFramePending.compareAndSet(false, true)) {
+                    mHandler.post(mScheduleFrame);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Tweet stream failed", e);
+        } catch (InterruptedException e) {
+            //Stopped
+        } finally {
+            mSource.close();
+        }
+    }
+}
@@ -4,14 +4,26 @@ import android.app.Activity;
 import android.net.Uri;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.text.Html;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import applico.googlezlpreview.R;
+import applico.googlezlpreview.adapters.TweetAdapter;
+import applico.googlezlpreview.data.AssetTweetSource;
+import applico.googlezlpreview.data.DetailRepository;
+import applico.googlezlpreview.data.InterestRepository;
+import applico.googlezlpreview.data.TweetStream;
+import applico.googlezlpreview.models.DetailContent;
+import applico.googlezlpreview.models.TimeSeries;
+import applico.googlezlpreview.models.TweetWindow;
+import applico.googlezlpreview.views.ChartView;
 
 /**
  * A simple {@link Fragment} subclass.
@@ -20,17 +32,48 @@ import applico.googlezlpreview.R;
  * to handle interaction events.
  * Use the {@link GlobalDetailFragment#newInstance} factory method to
  * create an instance of this fragment.
+ * <p>
+ * The content of the tab comes from the {@link DetailRepository}.  The pager creates the visible tab and its
+ * neighbours, so content is only loaded for those, and a tab that is recreated finds it cached.  The tweets tab
+ * is a live {@link TweetStream} instead, which only runs while the tab is the one showing.  The stats tab adds a
+ * chart of the search interest from the {@link InterestRepository} above its content.
  * @author Matt Powers
  */
-public class GlobalDetailFragment extends Fragment {
+public class GlobalDetailFragment extends Fragment implements DetailRepository.Listener {
 
     private static final String LOG_TAG = GlobalDetailFragment.class.getSimpleName();
 
     private View mRootView;
+    private LinearLayout mSectionsLayout;
+    private TextView mEmptyTV;
 
-    // TODO: Rename parameter arguments, choose names that match
-    // the fragment initialization parameters, e.g. ARG_ITEM_NUMBER
-    public static final String ARG_CONTENT = "content";
+    public static final String ARG_EVENT = "event";
+    public static final String ARG_TAB = "tab";
+
+    private String mEvent;
+    private int mTab;
+    private DetailContent mContent;
+
+    //Tweets tab
+    private static final int TWEET_WINDOW = 200;
+    private static final int TWEET_BUFFER = 64;
+    private static final int TWEETS_PER_SECOND = 20;
+    private TweetWindow mTweetWindow;
+    private TweetAdapter mTweetAdapter;
+    private TweetStream mTweetStream;
+
+    //Stats tab
+    private ChartView mChartView;
+    private TimeSeries mInterest;
+    private final InterestRepository.Listener mInterestListener = new InterestRepository.Listener() {
+        @Override
+        public void onInterestReady(String event, TimeSeries series) {
+            mInterest = series;
+            if (mChartView != null) {
+                mChartView.setSeries(series);
+            }
+        }
+    };
 
     private OnFragmentInteractionListener mListener;
 
@@ -38,15 +81,15 @@ public class GlobalDetailFragment extends Fragment {
      * Use this factory method to create a new instance of
      * this fragment using the provided parameters.
      *
-     * @param param1 Parameter 1.
-     * @param param2 Parameter 2.
+     * @param event title of the event
+     * @param tab one of the DetailRepository tabs
      * @return A new instance of fragment GlobalDetailFragment.
      */
-    // TODO: Rename and change types and number of parameters
-    public static GlobalDetailFragment newInstance(String param1, String param2) {
+    public static GlobalDetailFragment newInstance(String event, int tab) {
         GlobalDetailFragment fragment = new GlobalDetailFragment();
         Bundle args = new Bundle();
-        args.putString(ARG_CONTENT, param1);
+        args.putString(ARG_EVENT, event);
+        args.putInt(ARG_TAB, tab);
         fragment.setArguments(args);
         return fragment;
     }
@@ -57,15 +100,130 @@ public class GlobalDetailFragment extends Fragment {
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        Bundle args = getArguments();
+        mEvent = args.getString(ARG_EVENT, "");
+        mTab = args.getInt(ARG_TAB);
+        if (mTab == DetailRepository.TAB_TWEETS) {
+            mTweetWindow = new TweetWindow(TWEET_WINDOW);
+            return;
+        }
+        //Loads in the background unless it is cached, in which case the content is there before the view
+        DetailRepository.getInstance(getActivity()).request(mEvent, mTab, this);
+        if (mTab == DetailRepository.TAB_STATS) {
+            InterestRepository.getInstance().request(mEvent, mInterestListener);
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        DetailRepository.getInstance(getActivity()).cancel(mEvent, mTab, this);
+        InterestRepository.getInstance().cancel(mEvent, mInterestListener);
     }
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
-        mRootView = inflater.inflate(R.layout.fragment_global_detail, container, false);
+        if (mTab == DetailRepository.TAB_TWEETS) {
+            mRootView = inflater.inflate(R.layout.fragment_global_tweets, container, false);
+            RecyclerView tweetsRV = (RecyclerView) mRootView.findViewById(R.id.tweets_recycle_view);
+            tweetsRV.setLayoutManager(new LinearLayoutManager(getActivity()));
+            mTweetAdapter = new TweetAdapter(mTweetWindow);
+            tweetsRV.setAdapter(mTweetAdapter);
+            return mRootView;
+        }
+        if (mTab == DetailRepository.TAB_STATS) {
+            mRootView = inflater.inflate(R.layout.fragment_global_stats, container, false);
+            mChartView = (ChartView) mRootView.findViewById(R.id.stats_chart);
+            mChartView.setSeries(mInterest);
+        } else {
+            mRootView = inflater.inflate(R.layout.fragment_global_detail, container, false);
+        }
+        mSectionsLayout = (LinearLayout) mRootView.findViewById(R.id.detail_sections);
+        mEmptyTV = (TextView) mRootView.findViewById(R.id.detail_empty);
+        if (mContent != null) {
+            bindContent(inflater);
+        }
         return mRootView;
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        mTweetAdapter = null;
+        mChartView = null;
+        mRootView = null;
+        mSectionsLayout = null;
+        mEmptyTV = null;
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        updateTweetStream();
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        updateTweetStream();
+    }
+
+    @Override
+    public void setUserVisibleHint(boolean isVisibleToUser) {
+        super.setUserVisibleHint(isVisibleToUser);
+        updateTweetStream();
+    }
+
+    /**
+     * Stream tweets only while the tab is the one on screen, the neighbouring tabs are resumed too
+     */
+    private void updateTweetStream()
+    {
+        if (mTweetWindow == null) {
+            return;
+        }
+        boolean showing = isResumed() && getUserVisibleHint();
+        if (showing && mTweetStream == null) {
+            mTweetStream = new TweetStream(new AssetTweetSource(getActivity(), TWEETS_PER_SECOND), TWEET_BUFFER,
+                    mTweetWindow);
+            mTweetStream.start(new TweetStream.Listener() {
+                @Override
+                public void onTweetsAdded(int added) {
+                    if (mTweetAdapter != null) {
+                        mTweetAdapter.onTweetsAdded(added);
+                    }
+                }
+            });
+        } else if (!showing && mTweetStream != null) {
+            mTweetStream.stop();
+            mTweetStream = null;
+        }
+    }
+
+    @Override
+    public void onContentReady(String event, int tab, DetailContent content) {
+        mContent = content;
+        if (mRootView != null) {
+            bindContent(LayoutInflater.from(mRootView.getContext()));
+        }
+    }
+
+    private void bindContent(LayoutInflater inflater)
+    {
+        mSectionsLayout.removeAllViews();
+        for (int i = 0; i < mContent.getSectionCount(); i++) {
+            View section = inflater.inflate(R.layout.item_detail_section, mSectionsLayout, false);
+            TextView titleTV = (TextView) section.findViewById(R.id.detail_section_title);
+            String title = mContent.getTitle(i);
+            titleTV.setText(title);
+            titleTV.setVisibility(title != null ? View.VISIBLE : View.GONE);
+            ((TextView) section.findViewById(R.id.detail_section_content)).setText(mContent.getBody(i));
+            mSectionsLayout.addView(section);
+        }
+        mEmptyTV.setVisibility(mContent.isEmpty() ? View.VISIBLE : View.GONE);
+    }
+
     // TODO: Rename method, update argument and hook method into UI event
     public void onButtonPressed(Uri uri) {
         if (mListener != null) {
@@ -2,7 +2,6 @@ package applico.googlezlpreview.fragments;
 
 import android.app.Activity;
 import android.content.Intent;
-import android.graphics.BitmapFactory;
 import android.graphics.drawable.AnimatedStateListDrawable;
 import android.net.Uri;
 import android.os.Bundle;
@@ -15,25 +14,31 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import applico.googlezlpreview.R;
 import applico.googlezlpreview.activities.GlobalDetailsActivity;
 import applico.googlezlpreview.adapters.EventAdapter;
-import applico.googlezlpreview.models.Event;
+import applico.googlezlpreview.data.CategoryRepository;
+import applico.googlezlpreview.data.PagedEventList;
+import applico.googlezlpreview.metrics.FrameMonitor;
+import applico.googlezlpreview.metrics.LaunchTimeline;
+import applico.googlezlpreview.models.EventSource;
+import applico.googlezlpreview.models.EventStore;
 import applico.googlezlpreview.views.FabView;
 
 
-public class GlobalFragment extends Fragment implements View.OnClickListener {
+public class GlobalFragment extends Fragment implements View.OnClickListener,
+        CategoryRepository.Listener, CategoryRepository.RankingListener {
 
     private static String LOG_TAG = GlobalFragment.class.getSimpleName();
     private View mRootView;
     private RecyclerView mRecView;
-    private RecyclerView.Adapter mAdapter;
+    private EventAdapter mAdapter;
     private FabView mFabView;
     private AnimatedStateListDrawable mDrawable;
-    private List<Event> mEvents;
+    private EventSource mEvents;
+    private boolean mScrolling;
+    //When the category was asked for, until the repository hands it over
+    private long mRequestNanos;
 
 
 /**
@@ -43,31 +48,25 @@ public class GlobalFragment extends Fragment implements View.OnClickListener {
 
 
 
-    // TODO: Rename parameter arguments, choose names that match
-    // the fragment initialization parameters, e.g. ARG_ITEM_NUMBER
-    private static final String ARG_PARAM1 = "param1";
-    private static final String ARG_PARAM2 = "param2";
+    //Index of the global_titles category this page shows
+    private static final String ARG_CATEGORY = "category";
 
-    // TODO: Rename and change types of parameters
-    private String mParam1;
-    private String mParam2;
+    private int mCategory;
+    private CategoryRepository mRepository;
 
     private OnGlobalFragmentInteractionListener mListener;
 
     /**
      * Use this factory method to create a new instance of
-     * this fragment using the provided parameters.
+     * this fragment for a category.
      *
-     * @param param1 Parameter 1.
-     * @param param2 Parameter 2.
+     * @param category index of the category in global_titles and the feed
      * @return A new instance of fragment GlobalFragment.
      */
-    // TODO: Rename and change types and number of parameters
-    public static GlobalFragment newInstance(String param1, String param2) {
+    public static GlobalFragment newInstance(int category) {
         GlobalFragment fragment = new GlobalFragment();
         Bundle args = new Bundle();
-        args.putString(ARG_PARAM1, param1);
-        args.putString(ARG_PARAM2, param2);
+        args.putInt(ARG_CATEGORY, category);
         fragment.setArguments(args);
         return fragment;
     }
@@ -78,7 +77,25 @@ public class GlobalFragment extends Fragment implements View.OnClickListener {
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        mEvents = initializeDataset();
+        mCategory = getArguments() != null ? getArguments().getInt(ARG_CATEGORY) : 0;
+
+        //Start with an empty list unless the category is already loaded, it shows up as soon as the feed is
+        //read up to it
+        mEvents = new EventStore();
+        mRepository = CategoryRepository.getInstance(getActivity());
+        mRequestNanos = LaunchTimeline.now();
+        mRepository.request(mCategory, this);
+        mRepository.addRankingListener(this);
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        mRepository.cancel(mCategory, this);
+        mRepository.removeRankingListener(this);
+        if (mEvents instanceof PagedEventList) {
+            ((PagedEventList)mEvents).setListener(null);
+        }
     }
 
     @Override
@@ -91,18 +108,52 @@ public class GlobalFragment extends Fragment implements View.OnClickListener {
         //Fixed size improve performance, this is a demo application so I am going to set it
         mRecView.setHasFixedSize(true);
         mRecView.setLayoutManager(new LinearLayoutManager(getActivity()));
+        //Cards are shared with the other category pages, a new tab reuses the ones a destroyed tab left behind
+        mRecView.setRecycledViewPool(mListener.getCardViewPool());
 
-        // specify an adapter (see also next example)
-        mAdapter = new EventAdapter(mEvents);
-        mRecView.setAdapter(mAdapter);
+        //Time the frames of every fling and drag
+        mRecView.setOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(int newState) {
+                setScrolling(newState != RecyclerView.SCROLL_STATE_IDLE);
+            }
+
+            @Override
+            public void onScrolled(int dx, int dy) {
+            }
+        });
 
         mFabView = (FabView)mRootView.findViewById(R.id.fab_view);
         mFabView.setOnClickListener(this);
         mDrawable = (AnimatedStateListDrawable)mFabView.getCDrawable();
 
+        // specify an adapter (see also next example)
+        mAdapter = new EventAdapter(mEvents, mFabView);
+        mRecView.setAdapter(mAdapter);
+
         return mRootView;
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        //Detaching the adapter recycles the cards, which hands their bitmaps back to the image cache
+        mRecView.setAdapter(null);
+        setScrolling(false);
+    }
+
+    private void setScrolling(boolean scrolling) {
+        if (scrolling == mScrolling) {
+            return;
+        }
+        mScrolling = scrolling;
+        if (scrolling) {
+            FrameMonitor.getInstance().begin(FrameMonitor.SCROLL);
+        } else {
+            FrameMonitor.getInstance().end(FrameMonitor.SCROLL);
+        }
+    }
+
     // TODO: Rename method, update argument and hook method into UI event
     public void onButtonPressed(Uri uri) {
         if (mListener != null) {
@@ -148,53 +199,61 @@ public class GlobalFragment extends Fragment implements View.OnClickListener {
     public interface OnGlobalFragmentInteractionListener {
         // TODO: Update argument type and name
         public void onFragmentInteraction(Uri uri);
+
+        /**
+         * @return the pool of event cards shared by all category pages
+         */
+        public RecyclerView.RecycledViewPool getCardViewPool();
     }
 
 
 
     /**
-     * This is the initialization of dataset, again demo DEMO!!!
+     * The repository hands over the category, long ones come with their first page and the rest is paged in
+     * as the list gets close to it
+     */
+    @Override
+    public void onCategoryReady(int category, EventSource events) {
+        LaunchTimeline.getInstance().record("GlobalFragment.loadCategory " + category, mRequestNanos);
+        mEvents = events;
+        if (events instanceof PagedEventList) {
+            ((PagedEventList)events).setListener(new PagedEventList.Listener() {
+                @Override
+                public void onPageLoaded(int start, int count) {
+                    if (mAdapter != null) {
+                        mAdapter.notifyItemRangeChanged(start, count);
+                    }
+                }
+            });
+        }
+        if (mAdapter != null) {
+            mAdapter.setDataset(mEvents);
+        }
+    }
+
+    /**
+     * A refreshed ranking for this category, only the cards that changed are updated
+     * @param ranking
      */
-    private List<Event> initializeDataset()
-    {
-        List<Event> annualEvents = new ArrayList<Event>();
-
-        Event ev1 = new Event();
-        ev1.eventShareLink = Uri.parse("lorem ipsum");
-        ev1.eventTitle = "Gangnam Style";
-        ev1.eventImageSmall = BitmapFactory.decodeResource(getResources(),
-                R.drawable.img_gangnam);
-        ev1.eventImageDetail = BitmapFactory.decodeResource(getResources(),R.drawable.img_gangnam);
-        ev1.eventImageDetailID = R.drawable.img_gangnam;
-
-        Event ev2 = new Event();
-        ev2.eventShareLink = Uri.parse("lorem ipsum");
-        ev2.eventTitle = "Hurricane Sandy";
-        ev2.eventImageSmall = BitmapFactory.decodeResource(getResources(),R.drawable.img_sandy);
-        ev2.eventImageDetail = BitmapFactory.decodeResource(getResources(),R.drawable.img_sandy);
-        ev2.eventImageDetailID = R.drawable.img_sandy;
-
-        //Add a bunch of data
-        annualEvents.add(ev1);
-        annualEvents.add(ev2);
-        annualEvents.add(ev1);
-        annualEvents.add(ev2);
-        annualEvents.add(ev1);
-        annualEvents.add(ev2);
-        annualEvents.add(ev1);
-        annualEvents.add(ev2);
-        annualEvents.add(ev1);
-        annualEvents.add(ev2);
-        annualEvents.add(ev1);
-        annualEvents.add(ev2);
-        annualEvents.add(ev1);
-        annualEvents.add(ev2);
-        annualEvents.add(ev1);
-        annualEvents.add(ev2);
-        annualEvents.add(ev1);
-        annualEvents.add(ev2);
-
-       return annualEvents;
+    public void updateRanking(EventStore ranking) {
+        if (mEvents instanceof PagedEventList) {
+            ((PagedEventList)mEvents).setListener(null);
+        }
+        mEvents = ranking;
+        mRepository.put(mCategory, ranking);
+        if (mAdapter != null) {
+            mAdapter.updateRanking(ranking);
+        }
+    }
+
+    /**
+     * The repository ranked the categories again, e.g. from a query log
+     */
+    @Override
+    public void onRankingUpdated(int category, EventStore ranking) {
+        if (category == mCategory && ranking != mEvents) {
+            updateRanking(ranking);
+        }
     }
 
 
@@ -0,0 +1,100 @@
+package applico.googlezlpreview.images;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+/**
+ * Decodes bitmap resources at the size they are actually going to be displayed at.  The bounds of the
+ * image are read first, the image is then subsampled by the largest power of two that keeps it at
+ * least as large as the target, and the remaining difference is taken care of by the density scaling
+ * that BitmapFactory already does for resources.
+ */
+public class BitmapDecoder {
+
+    private static final String LOG_TAG = BitmapDecoder.class.getSimpleName();
+
+    //Decodes are always ARGB_8888
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private BitmapDecoder() {
+    }
+
+    /**
+     * Decode a resource so that it fits the requested size.  Pass 0 for either dimension to leave that
+     * dimension unconstrained, e.g. for an image view that wraps its height.
+     * @param res
+     * @param resId
+     * @param reqWidth target width in pixels
+     * @param reqHeight target height in pixels
+     * @return the decoded bitmap, or null if the resource could not be decoded
+     */
+    public static Bitmap decodeSampledBitmapFromResource(Resources res, int resId, int reqWidth, int reqHeight)
+    {
+        return decodeSampledBitmapFromResource(res, resId, reqWidth, reqHeight, null);
+    }
+
+    /**
+     * Same as {@link #decodeSampledBitmapFromResource(Resources, int, int, int)}, but decodes into a
+     * bitmap taken from the pool when one of a suitable size is available.
+     * @param res
+     * @param resId
+     * @param reqWidth
+     * @param reqHeight
+     * @param pool may be null
+     * @return
+     */
+    public static Bitmap decodeSampledBitmapFromResource(Resources res, int resId, int reqWidth, int reqHeight,
+                                                         BitmapPool pool)
+    {
+        //Read the raw bounds only, no pixels are allocated here
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        BitmapFactory.decodeResource(res, resId, options);
+
+        int srcWidth = options.outWidth;
+        int srcHeight = options.outHeight;
+        if (srcWidth <= 0 || srcHeight <= 0) {
+            return null;
+        }
+
+        options.inSampleSize = DecodeSize.calculateInSampleSize(srcWidth, srcHeight, reqWidth, reqHeight);
+        options.inJustDecodeBounds = false;
+        //Mutable so the bitmap can go back to the pool once it is evicted
+        options.inMutable = true;
+
+        //Let the decoder scale the subsampled image down the rest of the way
+        int outWidth = DecodeSize.divideRoundUp(srcWidth, options.inSampleSize);
+        int outHeight = DecodeSize.divideRoundUp(srcHeight, options.inSampleSize);
+        int scale = DecodeSize.calculateScale(srcWidth, srcHeight, reqWidth, reqHeight);
+        if (scale > 0 && scale < srcWidth / options.inSampleSize) {
+            options.inScaled = true;
+            options.inDensity = srcWidth;
+            options.inTargetDensity = scale * options.inSampleSize;
+            outHeight = DecodeSize.divideRoundUp(outHeight * scale, outWidth) + 1;
+            outWidth = scale + 1;
+        }
+
+        if (pool != null) {
+            options.inBitmap = pool.get(outWidth * outHeight * BYTES_PER_PIXEL);
+        }
+
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeResource(res, resId, options);
+        } catch (IllegalArgumentException e) {
+            //The pooled bitmap could not be reused after all, fall back to a fresh allocation
+            Log.w(LOG_TAG, "Unable to reuse bitmap for resource " + resId, e);
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeResource(res, resId, options);
+        }
+        //The decoder tags the bitmap with the pseudo density used to scale it, which views would scale by
+        //again when measuring.  The pixels are already at display size.
+        if (bitmap != null && options.inScaled) {
+            bitmap.setDensity(res.getDisplayMetrics().densityDpi);
+        }
+        return bitmap;
+    }
+}
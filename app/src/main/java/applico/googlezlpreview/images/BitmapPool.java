@@ -0,0 +1,97 @@
+package applico.googlezlpreview.images;
+
+import android.graphics.Bitmap;
+
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Pool of mutable bitmaps that are no longer displayed or cached, bucketed by allocation size.
+ * The decoder takes bitmaps out of here and passes them as {@link android.graphics.BitmapFactory.Options#inBitmap}
+ * so new decodes write into the pixel buffer of an old bitmap instead of allocating a new one.
+ */
+public class BitmapPool {
+
+    private static final String LOG_TAG = BitmapPool.class.getSimpleName();
+
+    //Don't hand out a buffer that is more than this many times larger than what is needed
+    private static final int MAX_SIZE_MULTIPLE = 2;
+
+    private final TreeMap<Integer, LinkedList<Bitmap>> mBuckets = new TreeMap<Integer, LinkedList<Bitmap>>();
+    private final int mMaxBytes;
+    private int mCurrentBytes;
+
+    public BitmapPool(int maxBytes)
+    {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Return a bitmap to the pool.  The caller must not draw it afterwards.
+     * @param bitmap
+     */
+    public synchronized void put(Bitmap bitmap)
+    {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (!bitmap.isMutable() || size > mMaxBytes) {
+            bitmap.recycle();
+            return;
+        }
+
+        LinkedList<Bitmap> bucket = mBuckets.get(size);
+        if (bucket == null) {
+            bucket = new LinkedList<Bitmap>();
+            mBuckets.put(size, bucket);
+        }
+        bucket.addLast(bitmap);
+        mCurrentBytes += size;
+        trimToSize(mMaxBytes);
+    }
+
+    /**
+     * Take a bitmap whose buffer can hold at least the given number of bytes
+     * @param byteCount
+     * @return a reusable bitmap, or null if none is close enough in size
+     */
+    public synchronized Bitmap get(int byteCount)
+    {
+        Map.Entry<Integer, LinkedList<Bitmap>> entry = mBuckets.ceilingEntry(byteCount);
+        if (entry == null || entry.getKey() > (long) byteCount * MAX_SIZE_MULTIPLE) {
+            return null;
+        }
+
+        LinkedList<Bitmap> bucket = entry.getValue();
+        Bitmap bitmap = bucket.removeFirst();
+        if (bucket.isEmpty()) {
+            mBuckets.remove(entry.getKey());
+        }
+        mCurrentBytes -= entry.getKey();
+        return bitmap;
+    }
+
+    public synchronized void clear()
+    {
+        trimToSize(0);
+    }
+
+    /**
+     * Evict from the largest buckets first, they free the most memory per bitmap
+     * @param maxBytes
+     */
+    private void trimToSize(int maxBytes)
+    {
+        while (mCurrentBytes > maxBytes && !mBuckets.isEmpty()) {
+            Map.Entry<Integer, LinkedList<Bitmap>> entry = mBuckets.lastEntry();
+            LinkedList<Bitmap> bucket = entry.getValue();
+            bucket.removeFirst().recycle();
+            if (bucket.isEmpty()) {
+                mBuckets.remove(entry.getKey());
+            }
+            mCurrentBytes -= entry.getKey();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package applico.googlezlpreview.images;
+
+/**
+ * The size math behind {@link BitmapDecoder}, kept free of the framework so it can be measured on a plain JVM.
+ * Requested sizes of 0 leave that dimension unconstrained.
+ */
+public class DecodeSize {
+
+    private DecodeSize() {
+    }
+
+    /**
+     * Largest power of two that still keeps both dimensions at or above the requested size.
+     * @param srcWidth
+     * @param srcHeight
+     * @param reqWidth
+     * @param reqHeight
+     * @return
+     */
+    public static int calculateInSampleSize(int srcWidth, int srcHeight, int reqWidth, int reqHeight)
+    {
+        int inSampleSize = 1;
+        if (reqWidth <= 0 && reqHeight <= 0) {
+            return inSampleSize;
+        }
+
+        int halfWidth = srcWidth / 2;
+        int halfHeight = srcHeight / 2;
+        while ((reqWidth <= 0 || halfWidth / inSampleSize >= reqWidth)
+                && (reqHeight <= 0 || halfHeight / inSampleSize >= reqHeight)) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    static int divideRoundUp(int value, int divisor)
+    {
+        return (value + divisor - 1) / divisor;
+    }
+
+    /**
+     * The width the image ends up at once it is scaled to cover the requested size, the aspect ratio
+     * is kept so the view can center crop it.
+     * @param srcWidth
+     * @param srcHeight
+     * @param reqWidth
+     * @param reqHeight
+     * @return the final width, or 0 if no scaling is needed
+     */
+    public static int calculateScale(int srcWidth, int srcHeight, int reqWidth, int reqHeight)
+    {
+        if (reqWidth <= 0 && reqHeight <= 0) {
+            return 0;
+        }
+        int widthForHeight = reqHeight > 0 ? (int) ((long) srcWidth * reqHeight / srcHeight) : 0;
+        return Math.max(reqWidth, widthForHeight);
+    }
+}
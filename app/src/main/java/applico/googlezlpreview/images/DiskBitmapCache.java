@@ -0,0 +1,247 @@
+package applico.googlezlpreview.images;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Disk cache of bitmaps that have already been decoded and scaled, so a cold start doesn't have to decode and
+ * resize the drawables again.  Bitmaps are stored as their raw ARGB_8888 pixels behind a small header, which
+ * reads straight into a bitmap without any decompression.  Files are memory mapped on both ends, the pixels go
+ * between the bitmap and the page cache without a heap buffer the size of the image in between.  That trades
+ * disk space for speed, the cache is bounded in bytes and the least recently used files (by modification time,
+ * touched on every hit) are deleted once it grows past that.
+ * <p>
+ * Files written by another version of the app are dropped, the drawables may have changed.  Calls do disk IO
+ * and belong on a background thread.
+ */
+public class DiskBitmapCache {
+
+    private static final String LOG_TAG = DiskBitmapCache.class.getSimpleName();
+
+    private static final int MAGIC = 0x5a424d50;
+    //magic, width, height, density
+    private static final int HEADER_BYTES = 4 * 4;
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File mDirectory;
+    private final String mSuffix;
+    private final long mMaxBytes;
+    private long mCurrentBytes = -1;
+
+    /**
+     * @param directory
+     * @param version files of any other version are deleted
+     * @param maxBytes
+     */
+    public DiskBitmapCache(File directory, int version, long maxBytes)
+    {
+        mDirectory = directory;
+        mSuffix = ".v" + version;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * @param key
+     * @param pool bitmap to read into is taken from here if there is one, may be null
+     * @return the cached bitmap, null if there is none or it can't be read
+     */
+    public Bitmap get(String key, BitmapPool pool)
+    {
+        File file = getFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            FileChannel channel = in.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(channel, header);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a cached bitmap");
+            }
+            int width = header.getInt();
+            int height = header.getInt();
+            int density = header.getInt();
+            long pixelBytes = (long) width * height * BYTES_PER_PIXEL;
+            if (width <= 0 || height <= 0 || channel.size() != HEADER_BYTES + pixelBytes) {
+                throw new IOException("Truncated cached bitmap");
+            }
+            MappedByteBuffer pixels = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, pixelBytes);
+
+            Bitmap bitmap = obtainBitmap(width, height, pool);
+            bitmap.copyPixelsFromBuffer(pixels);
+            bitmap.setDensity(density);
+            file.setLastModified(System.currentTimeMillis());
+            return bitmap;
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Unable to read " + file, e);
+            file.delete();
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Store a bitmap, anything already cached under the key is replaced
+     * @param key
+     * @param bitmap must be ARGB_8888
+     */
+    public void put(String key, Bitmap bitmap)
+    {
+        if (bitmap == null || bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+            return;
+        }
+
+        File file = getFile(key);
+        File temp = new File(mDirectory, file.getName() + TEMP_SUFFIX);
+        long length = HEADER_BYTES + (long) bitmap.getByteCount();
+
+        RandomAccessFile out = null;
+        try {
+            ensureInitialized();
+            out = new RandomAccessFile(temp, "rw");
+            out.setLength(length);
+            MappedByteBuffer buffer = out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.putInt(MAGIC).putInt(bitmap.getWidth()).putInt(bitmap.getHeight()).putInt(bitmap.getDensity());
+            bitmap.copyPixelsToBuffer(buffer);
+            buffer.force();
+            out.close();
+            out = null;
+
+            synchronized (this) {
+                long previous = file.length();
+                //Written to the side first so a reader never sees half a file
+                if (!temp.renameTo(file)) {
+                    throw new IOException("Unable to rename " + temp);
+                }
+                mCurrentBytes += file.length() - previous;
+                trimToSize();
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Unable to write " + file, e);
+            temp.delete();
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    public synchronized void clear()
+    {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mCurrentBytes = 0;
+    }
+
+    private File getFile(String key)
+    {
+        //Keys are resource entry names and sizes, keep them file name safe anyway
+        return new File(mDirectory, key.replaceAll("[^A-Za-z0-9_.-]", "_") + mSuffix);
+    }
+
+    /**
+     * Create the directory, drop stale files and add up the size of what is left
+     */
+    private synchronized void ensureInitialized() throws IOException
+    {
+        if (mCurrentBytes >= 0) {
+            return;
+        }
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Unable to create " + mDirectory);
+        }
+        long total = 0;
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(mSuffix)) {
+                    total += file.length();
+                } else {
+                    file.delete();
+                }
+            }
+        }
+        mCurrentBytes = total;
+    }
+
+    private void trimToSize()
+    {
+        if (mCurrentBytes <= mMaxBytes) {
+            return;
+        }
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long l = lhs.lastModified();
+                long r = rhs.lastModified();
+                return l < r ? -1 : (l == r ? 0 : 1);
+            }
+        });
+        for (int i = 0; i < files.length && mCurrentBytes > mMaxBytes; i++) {
+            if (files[i].getName().endsWith(mSuffix)) {
+                long length = files[i].length();
+                if (files[i].delete()) {
+                    mCurrentBytes -= length;
+                }
+            }
+        }
+    }
+
+    private static Bitmap obtainBitmap(int width, int height, BitmapPool pool)
+    {
+        Bitmap bitmap = pool != null ? pool.get(width * height * BYTES_PER_PIXEL) : null;
+        if (bitmap != null) {
+            try {
+                bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+                return bitmap;
+            } catch (IllegalArgumentException e) {
+                Log.w(LOG_TAG, "Unable to reuse bitmap for " + width + "x" + height, e);
+                pool.put(bitmap);
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Truncated cached bitmap");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void closeQuietly(Closeable closeable)
+    {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                //Nothing left to do with it
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package applico.googlezlpreview.images;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.util.DisplayMetrics;
+import android.util.LruCache;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * App wide memory cache for decoded bitmaps.  Entries are keyed by the resource id and the size the
+ * bitmap was decoded at, so the list and the detail screen share the same decodes.  The cache is
+ * bounded in bytes by a fraction of the memory class of the device.
+ * <p>
+ * Bitmaps that fall out of the cache are handed to a {@link BitmapPool} for reuse by later decodes.
+ * Anything that puts a cached bitmap on screen has to {@link #acquire(Bitmap)} it and {@link #release(Bitmap)}
+ * it afterwards, an evicted bitmap only goes to the pool once nothing is displaying it anymore.
+ * <p>
+ * Behind the memory cache sits a {@link DiskBitmapCache} of the scaled bitmaps, so after a cold start the
+ * images are read back at their display size instead of being decoded from the drawables again.  A key is only
+ * ever loaded by one thread at a time, the cards that show the same image on a cold start share a single decode.
+ */
+public class ImageCache {
+
+    private static final String LOG_TAG = ImageCache.class.getSimpleName();
+
+    //Fraction of the app heap the cache is allowed to hold
+    private static final int MEMORY_CLASS_DIVISOR = 8;
+
+    //Fraction of the cache size the reuse pool is allowed to hold on to
+    private static final int POOL_DIVISOR = 4;
+
+    private static final String DISK_CACHE_DIR = "bitmaps";
+    //Entries are raw pixels, a screen wide card or header is several MB on a tablet.  Room for every drawable
+    //at card and header size in both orientations, with the screen size as the bound on an entry.
+    private static final int DISK_CACHE_ENTRIES = 16;
+    private static final long MIN_DISK_CACHE_BYTES = 20 * 1024 * 1024;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static ImageCache sInstance;
+
+    private final LruCache<String, Bitmap> mMemoryCache;
+    private final BitmapPool mBitmapPool;
+    private final DiskBitmapCache mDiskCache;
+
+    //How many views are currently displaying each bitmap
+    private final HashMap<Bitmap, Integer> mDisplayCounts = new HashMap<Bitmap, Integer>();
+    //Evicted bitmaps that were still on screen when they left the cache
+    private final HashSet<Bitmap> mPendingRelease = new HashSet<Bitmap>();
+    //Misses being read or decoded, later requests for the same key wait for them instead of decoding again
+    private final HashMap<String, PendingDecode> mPendingDecodes = new HashMap<String, PendingDecode>();
+
+    /**
+     * A miss that one thread is loading for everyone asking for the same key
+     */
+    private static class PendingDecode {
+
+        private Bitmap mBitmap;
+        private boolean mDone;
+        //Requests that joined the load, the loading thread acquires the bitmap for each of them
+        private int mWaiters;
+
+        synchronized void finish(Bitmap bitmap)
+        {
+            mBitmap = bitmap;
+            mDone = true;
+            notifyAll();
+        }
+
+        synchronized Bitmap await()
+        {
+            boolean interrupted = false;
+            while (!mDone) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    //The bitmap is already acquired for this request, it has to be handed over
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return mBitmap;
+        }
+    }
+
+    public static synchronized ImageCache getInstance(Context context)
+    {
+        if (sInstance == null) {
+            ActivityManager am = (ActivityManager) context.getApplicationContext()
+                    .getSystemService(Context.ACTIVITY_SERVICE);
+            int maxBytes = am.getMemoryClass() * 1024 * 1024 / MEMORY_CLASS_DIVISOR;
+            DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+            long entryBytes = (long) metrics.widthPixels * metrics.heightPixels * BYTES_PER_PIXEL;
+            DiskBitmapCache diskCache = new DiskBitmapCache(new File(context.getCacheDir(), DISK_CACHE_DIR),
+                    getVersionCode(context), Math.max(MIN_DISK_CACHE_BYTES, entryBytes * DISK_CACHE_ENTRIES));
+            sInstance = new ImageCache(maxBytes, diskCache);
+        }
+        return sInstance;
+    }
+
+    private static int getVersionCode(Context context)
+    {
+        try {
+            return context.getPackageManager().getPackageInfo(context.getPackageName(), 0).versionCode;
+        } catch (PackageManager.NameNotFoundException e) {
+            return 0;
+        }
+    }
+
+    private ImageCache(int maxBytes, DiskBitmapCache diskCache)
+    {
+        mDiskCache = diskCache;
+        mBitmapPool = new BitmapPool(maxBytes / POOL_DIVISOR);
+        mMemoryCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                //A bitmap decoded into a larger pooled one holds on to the whole allocation
+                return bitmap.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (oldValue != newValue) {
+                    recycleWhenUnused(oldValue);
+                }
+            }
+        };
+    }
+
+    /**
+     * Build the cache key for a resource decoded at a given size
+     * @param resId
+     * @param width
+     * @param height
+     * @return
+     */
+    public static String getKey(int resId, int width, int height)
+    {
+        return resId + ":" + width + "x" + height;
+    }
+
+    public Bitmap get(String key)
+    {
+        return mMemoryCache.get(key);
+    }
+
+    /**
+     * Look a bitmap up and mark it as displayed in one step, so it can't be evicted and handed to the pool in
+     * between.  Release it once it is no longer displayed.
+     * @param key
+     * @return the bitmap, or null if it isn't in memory
+     */
+    public synchronized Bitmap getAndAcquire(String key)
+    {
+        Bitmap bitmap = mMemoryCache.get(key);
+        acquire(bitmap);
+        return bitmap;
+    }
+
+    public void put(String key, Bitmap bitmap)
+    {
+        if (key != null && bitmap != null) {
+            mMemoryCache.put(key, bitmap);
+        }
+    }
+
+    /**
+     * Read through the memory and disk caches, decoding the resource at the requested size on a miss.  Concurrent
+     * misses for the same key share one load.  The bitmap is returned acquired, the caller has to release it.
+     * This may do disk IO or wait for another thread's, call it from a background thread.
+     * @param res
+     * @param resId
+     * @param width
+     * @param height
+     * @return
+     */
+    public Bitmap getAndAcquireBitmap(Resources res, int resId, int width, int height)
+    {
+        String key = getKey(resId, width, height);
+        PendingDecode pending;
+        synchronized (this) {
+            Bitmap bitmap = getAndAcquire(key);
+            if (bitmap != null) {
+                return bitmap;
+            }
+            pending = mPendingDecodes.get(key);
+            if (pending != null) {
+                pending.mWaiters++;
+            } else {
+                mPendingDecodes.put(key, new PendingDecode());
+            }
+        }
+        if (pending != null) {
+            return pending.await();
+        }
+
+        Bitmap bitmap = null;
+        try {
+            bitmap = load(res, resId, width, height);
+        } finally {
+            synchronized (this) {
+                pending = mPendingDecodes.remove(key);
+                if (bitmap != null) {
+                    //Acquired before it goes into the cache, a put from another thread could evict it right away
+                    for (int i = 0; i <= pending.mWaiters; i++) {
+                        acquire(bitmap);
+                    }
+                    put(key, bitmap);
+                }
+            }
+            pending.finish(bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Read a miss from the disk cache or decode it, only one thread at a time loads a given key
+     */
+    private Bitmap load(Resources res, int resId, int width, int height)
+    {
+        //Resource ids change between builds, the entry name doesn't
+        String diskKey = res.getResourceEntryName(resId) + "_" + width + "x" + height;
+        Bitmap bitmap = mDiskCache.get(diskKey, mBitmapPool);
+        if (bitmap == null) {
+            bitmap = BitmapDecoder.decodeSampledBitmapFromResource(res, resId, width, height, mBitmapPool);
+            mDiskCache.put(diskKey, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Mark a bitmap as being displayed, it will not be reused until it is released
+     * @param bitmap
+     */
+    public synchronized void acquire(Bitmap bitmap)
+    {
+        if (bitmap == null) {
+            return;
+        }
+        Integer count = mDisplayCounts.get(bitmap);
+        mDisplayCounts.put(bitmap, count == null ? 1 : count + 1);
+    }
+
+    /**
+     * Mark a bitmap as no longer displayed by the caller
+     * @param bitmap
+     */
+    public synchronized void release(Bitmap bitmap)
+    {
+        Integer count = bitmap == null ? null : mDisplayCounts.get(bitmap);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            mDisplayCounts.put(bitmap, count - 1);
+            return;
+        }
+        mDisplayCounts.remove(bitmap);
+        if (mPendingRelease.remove(bitmap)) {
+            mBitmapPool.put(bitmap);
+        }
+    }
+
+    private synchronized void recycleWhenUnused(Bitmap bitmap)
+    {
+        if (mDisplayCounts.containsKey(bitmap)) {
+            mPendingRelease.add(bitmap);
+        } else {
+            mBitmapPool.put(bitmap);
+        }
+    }
+
+    public void clear()
+    {
+        mMemoryCache.evictAll();
+        mBitmapPool.clear();
+    }
+}
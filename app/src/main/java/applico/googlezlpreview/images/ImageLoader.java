@@ -0,0 +1,173 @@
+package applico.googlezlpreview.images;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.os.AsyncTask;
+import android.widget.ImageView;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * Loads images into image views off the main thread.  A view shows its placeholder straight away and
+ * gets the bitmap once it has been decoded, and a view only ever has one request outstanding: loading
+ * something else into it, or calling {@link #cancel(ImageView)}, cancels whatever it was waiting for.
+ * <p>
+ * All calls have to be made from the main thread.  The loader takes care of acquiring and releasing the
+ * bitmaps it displays with the {@link ImageCache}, a bitmap is acquired in the same step it is looked up in and
+ * released again if the view doesn't want it anymore by the time it arrives.
+ */
+public class ImageLoader {
+
+    private static final String LOG_TAG = ImageLoader.class.getSimpleName();
+
+    private static ImageLoader sInstance;
+
+    private final ImageCache mImageCache;
+    private final Resources mResources;
+
+    //Outstanding request and currently displayed bitmap per view
+    private final WeakHashMap<ImageView, LoadTask> mRequests = new WeakHashMap<ImageView, LoadTask>();
+    private final WeakHashMap<ImageView, Bitmap> mDisplayed = new WeakHashMap<ImageView, Bitmap>();
+
+    public static synchronized ImageLoader getInstance(Context context)
+    {
+        if (sInstance == null) {
+            sInstance = new ImageLoader(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private ImageLoader(Context context)
+    {
+        mImageCache = ImageCache.getInstance(context);
+        mResources = context.getResources();
+    }
+
+    /**
+     * Load a resource decoded at the given size into the view
+     * @param view
+     * @param resId
+     * @param width
+     * @param height
+     * @param placeholder shown until the bitmap is ready, may be null
+     */
+    public void load(ImageView view, int resId, int width, int height, Drawable placeholder)
+    {
+        String key = ImageCache.getKey(resId, width, height);
+        LoadTask pending = mRequests.get(view);
+        if (pending != null) {
+            if (pending.mKey.equals(key)) {
+                return;
+            }
+            cancelRequest(view);
+        }
+
+        //Memory hits don't need a round trip through the background
+        Bitmap bitmap = mImageCache.getAndAcquire(key);
+        if (bitmap != null) {
+            display(view, bitmap);
+            return;
+        }
+
+        clear(view);
+        view.setImageDrawable(placeholder);
+        LoadTask task = new LoadTask(view, key, resId, width, height);
+        mRequests.put(view, task);
+        task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Cancel any outstanding request for the view and let go of the bitmap it is displaying
+     * @param view
+     */
+    public void cancel(ImageView view)
+    {
+        cancelRequest(view);
+        clear(view);
+    }
+
+    private void cancelRequest(ImageView view)
+    {
+        LoadTask task = mRequests.remove(view);
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * @param view
+     * @param bitmap already acquired, the view takes over that acquisition
+     */
+    private void display(ImageView view, Bitmap bitmap)
+    {
+        Bitmap previous = mDisplayed.get(view);
+        if (previous == bitmap) {
+            mImageCache.release(bitmap);
+            return;
+        }
+        view.setImageBitmap(bitmap);
+        mDisplayed.put(view, bitmap);
+        mImageCache.release(previous);
+    }
+
+    private void clear(ImageView view)
+    {
+        Bitmap previous = mDisplayed.remove(view);
+        if (previous != null) {
+            view.setImageDrawable(null);
+            mImageCache.release(previous);
+        }
+    }
+
+    /**
+     * Decodes through the cache on a background thread and hands the result back to the view, if the view
+     * is still waiting for it
+     */
+    private class LoadTask extends AsyncTask<Void, Void, Bitmap> {
+
+        private final WeakReference<ImageView> mViewRef;
+        private final String mKey;
+        private final int mResId;
+        private final int mWidth;
+        private final int mHeight;
+
+        LoadTask(ImageView view, String key, int resId, int width, int height)
+        {
+            mViewRef = new WeakReference<ImageView>(view);
+            mKey = key;
+            mResId = resId;
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        protected Bitmap doInBackground(Void... params) {
+            if (isCancelled()) {
+                return null;
+            }
+            return mImageCache.getAndAcquireBitmap(mResources, mResId, mWidth, mHeight);
+        }
+
+        @Override
+        protected void onPostExecute(Bitmap bitmap) {
+            ImageView view = mViewRef.get();
+            if (view == null || mRequests.get(view) != this) {
+                //The view was rebound or went away while this was loading
+                mImageCache.release(bitmap);
+                return;
+            }
+            mRequests.remove(view);
+            if (bitmap != null) {
+                display(view, bitmap);
+            }
+        }
+
+        @Override
+        protected void onCancelled(Bitmap bitmap) {
+            mImageCache.release(bitmap);
+        }
+    }
+}
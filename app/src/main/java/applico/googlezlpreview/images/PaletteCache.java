@@ -0,0 +1,118 @@
+package applico.googlezlpreview.images;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.os.AsyncTask;
+import android.support.v7.graphics.Palette;
+import android.util.SparseIntArray;
+
+/**
+ * Extracts the light vibrant color of an image on a background thread and remembers it across launches.
+ * The palette is generated from a small decode of the image, not the displayed bitmap, and results are
+ * persisted in shared preferences under the resource entry name, which unlike the resource id is stable
+ * between builds.
+ */
+public class PaletteCache {
+
+    private static final String LOG_TAG = PaletteCache.class.getSimpleName();
+
+    private static final String PREFS_NAME = "palette_cache";
+
+    //Size of the copy the palette is generated from, the colors barely change below this
+    private static final int PALETTE_SAMPLE_SIZE = 100;
+
+    private static PaletteCache sInstance;
+
+    private final Resources mResources;
+    private final SharedPreferences mPrefs;
+    //Colors already read or generated this session, keyed by resource id
+    private final SparseIntArray mColors = new SparseIntArray();
+
+    /**
+     * Callback for {@link #getColor(int, int, OnColorReadyListener)}, always called on the main thread
+     */
+    public interface OnColorReadyListener {
+        public void onColorReady(int color);
+    }
+
+    public static synchronized PaletteCache getInstance(Context context)
+    {
+        if (sInstance == null) {
+            sInstance = new PaletteCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private PaletteCache(Context context)
+    {
+        mResources = context.getResources();
+        mPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Get the light vibrant color for an image resource.  If it is cached the listener is called right away,
+     * otherwise once the palette has been generated in the background.
+     * @param resId
+     * @param defaultColor used when the image has no light vibrant swatch
+     * @param listener
+     */
+    public void getColor(final int resId, final int defaultColor, final OnColorReadyListener listener)
+    {
+        int cached = getCachedColor(resId);
+        if (cached != 0) {
+            listener.onColorReady(cached);
+            return;
+        }
+
+        new AsyncTask<Void, Void, Integer>() {
+            @Override
+            protected Integer doInBackground(Void... params) {
+                return generateColor(resId, defaultColor);
+            }
+
+            @Override
+            protected void onPostExecute(Integer color) {
+                listener.onColorReady(color);
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * @param resId
+     * @return the cached color, or 0 if the palette has not been generated yet
+     */
+    public int getCachedColor(int resId)
+    {
+        synchronized (mColors) {
+            int color = mColors.get(resId);
+            if (color == 0) {
+                color = mPrefs.getInt(mResources.getResourceEntryName(resId), 0);
+                if (color != 0) {
+                    mColors.put(resId, color);
+                }
+            }
+            return color;
+        }
+    }
+
+    private int generateColor(int resId, int defaultColor)
+    {
+        Bitmap sample = BitmapDecoder.decodeSampledBitmapFromResource(mResources, resId,
+                PALETTE_SAMPLE_SIZE, PALETTE_SAMPLE_SIZE);
+        if (sample == null) {
+            return defaultColor;
+        }
+
+        Palette palette = Palette.generate(sample);
+        sample.recycle();
+        int color = palette.getLightVibrantColor() != null ? palette.getLightVibrantColor().getRgb() : defaultColor;
+
+        synchronized (mColors) {
+            mColors.put(resId, color);
+        }
+        mPrefs.edit().putInt(mResources.getResourceEntryName(resId), color).apply();
+        return color;
+    }
+}
@@ -0,0 +1,112 @@
+package applico.googlezlpreview.metrics;
+
+import java.util.Locale;
+
+/**
+ * Histogram of frame durations with one millisecond buckets up to {@link #MAX_MILLIS} and one bucket for
+ * anything slower.  Adding a frame is a couple of array writes, nothing is allocated.
+ * <p>
+ * A frame is janky when it took longer than the 60Hz budget, the frames it made the display miss are counted
+ * separately since one 100ms hitch hurts more than a single 20ms frame.
+ */
+public class FrameHistogram {
+
+    public static final int MAX_MILLIS = 250;
+    public static final long FRAME_BUDGET_NANOS = 1000000000L / 60;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final int[] mBuckets = new int[MAX_MILLIS + 2];
+    private int mFrames;
+    private int mJankyFrames;
+    private int mMissedFrames;
+    private long mTotalNanos;
+    private long mMaxNanos;
+
+    /**
+     * @param durationNanos time between this frame and the previous one
+     */
+    public void add(long durationNanos)
+    {
+        int millis = (int) Math.min(durationNanos / NANOS_PER_MILLI, MAX_MILLIS + 1);
+        mBuckets[millis]++;
+        mFrames++;
+        mTotalNanos += durationNanos;
+        if (durationNanos > mMaxNanos) {
+            mMaxNanos = durationNanos;
+        }
+        //A little slack so vsync jitter doesn't count as a missed frame
+        long missed = (durationNanos - FRAME_BUDGET_NANOS / 2) / FRAME_BUDGET_NANOS;
+        if (missed > 0) {
+            mJankyFrames++;
+            mMissedFrames += missed;
+        }
+    }
+
+    public int getFrameCount()
+    {
+        return mFrames;
+    }
+
+    public int getJankyFrameCount()
+    {
+        return mJankyFrames;
+    }
+
+    public int getMissedFrameCount()
+    {
+        return mMissedFrames;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return upper bound in milliseconds of the bucket the percentile falls in, MAX_MILLIS + 1 means slower
+     * than MAX_MILLIS
+     */
+    public int getPercentileMillis(int percentile)
+    {
+        if (mFrames == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(mFrames * (percentile / 100.0));
+        int seen = 0;
+        for (int i = 0; i < mBuckets.length; i++) {
+            seen += mBuckets[i];
+            if (seen >= rank) {
+                return i + 1;
+            }
+        }
+        return MAX_MILLIS + 1;
+    }
+
+    public void reset()
+    {
+        for (int i = 0; i < mBuckets.length; i++) {
+            mBuckets[i] = 0;
+        }
+        mFrames = 0;
+        mJankyFrames = 0;
+        mMissedFrames = 0;
+        mTotalNanos = 0;
+        mMaxNanos = 0;
+    }
+
+    /**
+     * One line summary followed by the non empty buckets, one per line as "millis count"
+     * @param out
+     */
+    public void appendTo(StringBuilder out)
+    {
+        float average = mFrames == 0 ? 0 : (float) mTotalNanos / mFrames / NANOS_PER_MILLI;
+        out.append(String.format(Locale.US,
+                "frames=%d janky=%d missed=%d avg=%.2fms p50=%dms p90=%dms p99=%dms max=%.2fms\n",
+                mFrames, mJankyFrames, mMissedFrames, average, getPercentileMillis(50), getPercentileMillis(90),
+                getPercentileMillis(99), (float) mMaxNanos / NANOS_PER_MILLI));
+        for (int i = 0; i < mBuckets.length; i++) {
+            if (mBuckets[i] > 0) {
+                out.append(i == MAX_MILLIS + 1 ? ">" + MAX_MILLIS : String.valueOf(i)).append(' ')
+                        .append(mBuckets[i]).append('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package applico.googlezlpreview.metrics;
+
+import android.content.Context;
+import android.view.Choreographer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import applico.googlezlpreview.BuildConfig;
+
+/**
+ * Records how long frames take while something is moving on screen.  Screens say which one is showing and the
+ * code behind an interaction (a list scroll, an activity transition, a tint animation) brackets it with
+ * {@link #begin(int)} and {@link #end(int)}.  While at least one interaction is running a choreographer frame
+ * callback measures the time between frames and adds it to a histogram per screen and interaction, when
+ * nothing is running no callback is posted so an idle screen costs nothing.
+ * <p>
+ * Only debug builds record anything.  The histograms can be written to a report file in the app's files
+ * directory, to compare jank between releases.  All calls have to be made from the main thread.
+ */
+public class FrameMonitor implements Choreographer.FrameCallback {
+
+    private static final String LOG_TAG = FrameMonitor.class.getSimpleName();
+
+    public static final int SCROLL = 0;
+    public static final int TRANSITION = 1;
+    public static final int TINT = 2;
+    private static final String[] INTERACTION_NAMES = {"scroll", "transition", "tint"};
+
+    public static final String SCREEN_GLOBAL = "global";
+    public static final String SCREEN_DETAILS = "details";
+
+    public static final String REPORT_FILE = "frame_metrics.txt";
+
+    private static FrameMonitor sInstance;
+
+    private final boolean mEnabled = BuildConfig.DEBUG;
+    private final Map<String, FrameHistogram[]> mHistograms = new HashMap<String, FrameHistogram[]>();
+    //How many times each interaction has been begun and not yet ended
+    private final int[] mActive = new int[INTERACTION_NAMES.length];
+    private String mScreen = "unknown";
+    private FrameHistogram[] mScreenHistograms;
+    private boolean mPosted;
+    private long mLastFrameNanos;
+
+    public static FrameMonitor getInstance()
+    {
+        if (sInstance == null) {
+            sInstance = new FrameMonitor();
+        }
+        return sInstance;
+    }
+
+    private FrameMonitor()
+    {
+        mScreenHistograms = getHistograms(mScreen);
+    }
+
+    /**
+     * The screen frames are attributed to from now on, call it when the screen comes to the front
+     * @param screen
+     */
+    public void setScreen(String screen)
+    {
+        if (!mEnabled || screen.equals(mScreen)) {
+            return;
+        }
+        mScreen = screen;
+        mScreenHistograms = getHistograms(screen);
+    }
+
+    /**
+     * An interaction started, its frames are recorded until the matching {@link #end(int)}
+     * @param interaction {@link #SCROLL}, {@link #TRANSITION} or {@link #TINT}
+     */
+    public void begin(int interaction)
+    {
+        if (!mEnabled) {
+            return;
+        }
+        mActive[interaction]++;
+        if (!mPosted) {
+            mPosted = true;
+            mLastFrameNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    public void end(int interaction)
+    {
+        if (!mEnabled || mActive[interaction] == 0) {
+            return;
+        }
+        mActive[interaction]--;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!isActive()) {
+            mPosted = false;
+            return;
+        }
+        if (mLastFrameNanos != 0) {
+            long duration = frameTimeNanos - mLastFrameNanos;
+            for (int i = 0; i < mActive.length; i++) {
+                if (mActive[i] > 0) {
+                    mScreenHistograms[i].add(duration);
+                }
+            }
+        }
+        mLastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * @return every histogram recorded so far, by screen and interaction
+     */
+    public String getReport()
+    {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, FrameHistogram[]> entry : new TreeMap<String, FrameHistogram[]>(mHistograms)
+                .entrySet()) {
+            FrameHistogram[] histograms = entry.getValue();
+            for (int i = 0; i < histograms.length; i++) {
+                if (histograms[i].getFrameCount() > 0) {
+                    out.append("# ").append(entry.getKey()).append(' ').append(INTERACTION_NAMES[i]).append('\n');
+                    histograms[i].appendTo(out);
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Write the report to {@link #REPORT_FILE} in the files directory on a background thread, replacing the
+     * previous one
+     * @param context
+     */
+    public void exportReport(Context context)
+    {
+        if (!mEnabled) {
+            return;
+        }
+        ReportWriter.write(context, REPORT_FILE, getReport());
+    }
+
+    public void reset()
+    {
+        mHistograms.clear();
+        mScreenHistograms = getHistograms(mScreen);
+    }
+
+    private boolean isActive()
+    {
+        for (int count : mActive) {
+            if (count > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private FrameHistogram[] getHistograms(String screen)
+    {
+        FrameHistogram[] histograms = mHistograms.get(screen);
+        if (histograms == null) {
+            histograms = new FrameHistogram[INTERACTION_NAMES.length];
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new FrameHistogram();
+            }
+            mHistograms.put(screen, histograms);
+        }
+        return histograms;
+    }
+}
@@ -0,0 +1,251 @@
+package applico.googlezlpreview.metrics;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+import applico.googlezlpreview.BuildConfig;
+
+/**
+ * Timeline of what happens while the app starts and moves between screens.  Phases on the main thread are
+ * bracketed with {@link #begin(String)} and {@link #end()}, which also open a systrace section of the same name,
+ * work that finishes on a callback is recorded with {@link #record(String, long)}.
+ * <p>
+ * Registered as activity lifecycle callbacks it also measures every start up to the first frame of the
+ * activity: cold when it is the first activity of the process (timed from the application being created), warm
+ * when the activity is created in a running process and hot when a stopped activity is brought back.  A card tap
+ * marked with {@link #markCardTap()} is timed up to the first frame of the next activity.
+ * <p>
+ * Debug builds write the timeline to {@link #TIMELINE_FILE} in the files directory whenever an activity stops.
+ * All calls have to be made from the main thread.
+ */
+public class LaunchTimeline implements Application.ActivityLifecycleCallbacks {
+
+    private static final String LOG_TAG = LaunchTimeline.class.getSimpleName();
+
+    public static final String TIMELINE_FILE = "launch_timeline.txt";
+
+    //Oldest entries are dropped past this
+    private static final int MAX_ENTRIES = 500;
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private static final String COLD_START = "cold_start";
+    private static final String WARM_START = "warm_start";
+    private static final String HOT_START = "hot_start";
+    private static final String CARD_TAP = "card_tap_to_first_frame";
+
+    private static LaunchTimeline sInstance;
+
+    private final long mProcessStartNanos = SystemClock.elapsedRealtimeNanos();
+    private final ArrayList<Entry> mEntries = new ArrayList<Entry>();
+    private final ArrayList<Entry> mOpen = new ArrayList<Entry>();
+    private boolean mFirstActivity = true;
+    private long mCardTapNanos;
+
+    //Start of the activity that is on its way to its first frame
+    private String mPendingStart;
+    private long mPendingStartNanos;
+    private boolean mWaitingForFrame;
+
+    private static class Entry {
+        final String name;
+        final long startNanos;
+        long durationNanos = -1;
+
+        Entry(String name, long startNanos) {
+            this.name = name;
+            this.startNanos = startNanos;
+        }
+    }
+
+    public static LaunchTimeline getInstance()
+    {
+        if (sInstance == null) {
+            sInstance = new LaunchTimeline();
+        }
+        return sInstance;
+    }
+
+    private LaunchTimeline() {
+    }
+
+    public static long now()
+    {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * Start a phase, phases nest and have to be ended in reverse order
+     * @param name
+     */
+    public void begin(String name)
+    {
+        Trace.beginSection(name);
+        mOpen.add(new Entry(name, now()));
+    }
+
+    /**
+     * End the phase begun last
+     */
+    public void end()
+    {
+        Entry entry = mOpen.remove(mOpen.size() - 1);
+        entry.durationNanos = now() - entry.startNanos;
+        add(entry);
+        Trace.endSection();
+    }
+
+    /**
+     * Record a phase that started earlier and ended now, e.g. a background load that just called back
+     * @param name
+     * @param startNanos from {@link #now()}
+     */
+    public void record(String name, long startNanos)
+    {
+        Entry entry = new Entry(name, startNanos);
+        entry.durationNanos = now() - startNanos;
+        add(entry);
+    }
+
+    /**
+     * A card was tapped, the next activity to draw its first frame ends the measurement
+     */
+    public void markCardTap()
+    {
+        mCardTapNanos = now();
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        if (mFirstActivity) {
+            startPending(activity, COLD_START, mProcessStartNanos);
+        } else {
+            startPending(activity, WARM_START, now());
+        }
+        mFirstActivity = false;
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+        if (mPendingStart == null) {
+            startPending(activity, HOT_START, now());
+        }
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+        //Only now, the activity may still request window features while it is being created and asking for the
+        //decor any earlier would install it
+        if (mPendingStart != null && !mWaitingForFrame) {
+            waitForFirstFrame(activity);
+        }
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+        exportTimeline(activity);
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+    }
+
+    private void startPending(Activity activity, String kind, long startNanos)
+    {
+        mPendingStart = kind + ": " + activity.getClass().getSimpleName();
+        mPendingStartNanos = startNanos;
+    }
+
+    private void waitForFirstFrame(Activity activity)
+    {
+        final View decor = activity.getWindow().peekDecorView();
+        if (decor == null) {
+            //Nothing is going to be drawn, resuming is as far as this start gets
+            onFirstFrame();
+            return;
+        }
+
+        //The first pre draw pass is as close to the first frame as the framework lets us get
+        mWaitingForFrame = true;
+        decor.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decor.getViewTreeObserver().removeOnPreDrawListener(this);
+                mWaitingForFrame = false;
+                onFirstFrame();
+                return true;
+            }
+        });
+    }
+
+    private void onFirstFrame()
+    {
+        if (mPendingStart != null) {
+            record(mPendingStart, mPendingStartNanos);
+            mPendingStart = null;
+        }
+        if (mCardTapNanos != 0) {
+            record(CARD_TAP, mCardTapNanos);
+            mCardTapNanos = 0;
+        }
+    }
+
+    private void add(Entry entry)
+    {
+        if (mEntries.size() == MAX_ENTRIES) {
+            mEntries.remove(0);
+        }
+        mEntries.add(entry);
+        if (BuildConfig.DEBUG) {
+            Log.d(LOG_TAG, format(entry));
+        }
+    }
+
+    private String format(Entry entry)
+    {
+        return String.format(Locale.US, "%10.2fms %10.2fms %s",
+                (float) (entry.startNanos - mProcessStartNanos) / NANOS_PER_MILLI,
+                (float) entry.durationNanos / NANOS_PER_MILLI, entry.name);
+    }
+
+    /**
+     * @return one line per recorded phase: start relative to the process, duration and name
+     */
+    public String getTimeline()
+    {
+        StringBuilder out = new StringBuilder();
+        for (Entry entry : mEntries) {
+            out.append(format(entry)).append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Write the timeline to {@link #TIMELINE_FILE} on a background thread, debug builds only
+     * @param context
+     */
+    public void exportTimeline(Context context)
+    {
+        if (!BuildConfig.DEBUG) {
+            return;
+        }
+        ReportWriter.write(context, TIMELINE_FILE, getTimeline());
+    }
+}
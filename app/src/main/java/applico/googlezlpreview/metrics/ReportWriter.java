@@ -0,0 +1,54 @@
+package applico.googlezlpreview.metrics;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Writes the text reports of the metrics classes to the app's files directory, where they can be pulled with adb
+ */
+class ReportWriter {
+
+    private static final String LOG_TAG = ReportWriter.class.getSimpleName();
+
+    private ReportWriter() {
+    }
+
+    /**
+     * Write a report on a background thread, replacing the previous one of the same name
+     * @param context
+     * @param name file name in the files directory
+     * @param body
+     */
+    static void write(Context context, String name, final String body)
+    {
+        final File file = new File(context.getFilesDir(), name);
+        new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                Writer writer = null;
+                try {
+                    writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+                    writer.write(body);
+                } catch (IOException e) {
+                    Log.w(LOG_TAG, "Unable to write " + file, e);
+                } finally {
+                    if (writer != null) {
+                        try {
+                            writer.close();
+                        } catch (IOException e) {
+                            Log.w(LOG_TAG, "Unable to close " + file, e);
+                        }
+                    }
+                }
+                return null;
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+}
@@ -0,0 +1,43 @@
+package applico.googlezlpreview.models;
+
+import java.util.ArrayList;
+
+/**
+ * Content of one detail tab of an event, a list of sections with a title and a body each.
+ * Built once on the loading thread and only read afterwards.
+ */
+public class DetailContent {
+
+    private final ArrayList<String> mTitles = new ArrayList<String>();
+    private final ArrayList<String> mBodies = new ArrayList<String>();
+
+    /**
+     * @param title may be null for a section without a heading
+     * @param body
+     */
+    public void addSection(String title, String body)
+    {
+        mTitles.add(title);
+        mBodies.add(body);
+    }
+
+    public int getSectionCount()
+    {
+        return mTitles.size();
+    }
+
+    public String getTitle(int section)
+    {
+        return mTitles.get(section);
+    }
+
+    public String getBody(int section)
+    {
+        return mBodies.get(section);
+    }
+
+    public boolean isEmpty()
+    {
+        return mTitles.isEmpty();
+    }
+}
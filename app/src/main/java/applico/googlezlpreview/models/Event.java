@@ -1,13 +1,8 @@
 package applico.googlezlpreview.models;
 
-import android.graphics.Bitmap;
-import android.graphics.drawable.Drawable;
-import android.net.Uri;
-import android.os.Parcel;
-import android.os.Parcelable;
-
 /**
  * Event represents an event that happened over the course of the year
+ * Events are kept in an {@link EventStore}, an Event instance is only a view of one row and is reused between rows.
  * @author Matt Powers
  */
 public class Event {
@@ -16,16 +11,13 @@ public class Event {
     public String eventTitle;
 
     //The uri to share
-    public Uri eventShareLink;
-
-    //The card image
-    public Bitmap eventImageSmall;
+    public String eventShareLink;
 
-    //The detail image
-    public Bitmap eventImageDetail;
+    //Position in the ranking, starting at 1
+    public int eventRank;
 
-    //Drawable ID
-    public int eventImageDetailID;
+    //Drawable the card and detail images are loaded from, the bitmaps themselves live in the image cache
+    public int eventImageID;
 
 
 }
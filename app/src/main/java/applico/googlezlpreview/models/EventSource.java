@@ -0,0 +1,17 @@
+package applico.googlezlpreview.models;
+
+/**
+ * A ranked list of events the adapters can bind from
+ */
+public interface EventSource {
+
+    public int size();
+
+    /**
+     * Fill the flyweight with the event at the position
+     * @param position
+     * @param reuse the event to fill, a new one is created if null
+     * @return the filled event, or null if the event is not available yet
+     */
+    public Event get(int position, Event reuse);
+}
@@ -0,0 +1,154 @@
+package applico.googlezlpreview.models;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Compact, column oriented storage for a ranked list of events.  Every column is a primitive array and the
+ * strings go through a pool, so an event costs a few ints no matter how often its title or link repeats.
+ * Rows are read through a reusable {@link Event} flyweight with {@link #get(int, Event)}.
+ * <p>
+ * Not thread safe, build a store on one thread and hand it over once it is complete.
+ */
+public class EventStore implements EventSource {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int NO_STRING = -1;
+
+    //Columns, indexed by position
+    private int[] mTitles;
+    private int[] mShareLinks;
+    private int[] mRanks;
+    private int[] mImageIds;
+    private int mSize;
+
+    //String pool the title and link columns point into
+    private String[] mStrings;
+    private int mStringCount;
+    private final HashMap<String, Integer> mStringIndex = new HashMap<String, Integer>();
+
+    public EventStore()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public EventStore(int capacity)
+    {
+        capacity = Math.max(capacity, 1);
+        mTitles = new int[capacity];
+        mShareLinks = new int[capacity];
+        mRanks = new int[capacity];
+        mImageIds = new int[capacity];
+        mStrings = new String[capacity];
+    }
+
+    /**
+     * Append an event ranked after the last one
+     * @param title
+     * @param shareLink may be null
+     * @param imageId drawable the event images are loaded from
+     * @return the position of the event
+     */
+    public int add(String title, String shareLink, int imageId)
+    {
+        return add(title, shareLink, imageId, mSize + 1);
+    }
+
+    /**
+     * Append an event with an explicit rank
+     * @param title
+     * @param shareLink may be null
+     * @param imageId
+     * @param rank
+     * @return the position of the event
+     */
+    public int add(String title, String shareLink, int imageId, int rank)
+    {
+        if (mSize == mTitles.length) {
+            int capacity = mSize * 2;
+            mTitles = Arrays.copyOf(mTitles, capacity);
+            mShareLinks = Arrays.copyOf(mShareLinks, capacity);
+            mRanks = Arrays.copyOf(mRanks, capacity);
+            mImageIds = Arrays.copyOf(mImageIds, capacity);
+        }
+        mTitles[mSize] = intern(title);
+        mShareLinks[mSize] = intern(shareLink);
+        mRanks[mSize] = rank;
+        mImageIds[mSize] = imageId;
+        return mSize++;
+    }
+
+    @Override
+    public int size()
+    {
+        return mSize;
+    }
+
+    public String getTitle(int position)
+    {
+        return lookup(mTitles[checkPosition(position)]);
+    }
+
+    public String getShareLink(int position)
+    {
+        return lookup(mShareLinks[checkPosition(position)]);
+    }
+
+    public int getRank(int position)
+    {
+        return mRanks[checkPosition(position)];
+    }
+
+    public int getImageId(int position)
+    {
+        return mImageIds[checkPosition(position)];
+    }
+
+    /**
+     * Fill the flyweight with the event at the position
+     * @param position
+     * @param reuse the event to fill, a new one is created if null
+     * @return the filled event
+     */
+    @Override
+    public Event get(int position, Event reuse)
+    {
+        checkPosition(position);
+        Event event = reuse != null ? reuse : new Event();
+        event.eventTitle = lookup(mTitles[position]);
+        event.eventShareLink = lookup(mShareLinks[position]);
+        event.eventRank = mRanks[position];
+        event.eventImageID = mImageIds[position];
+        return event;
+    }
+
+    private int intern(String value)
+    {
+        if (value == null) {
+            return NO_STRING;
+        }
+        Integer index = mStringIndex.get(value);
+        if (index != null) {
+            return index;
+        }
+        if (mStringCount == mStrings.length) {
+            mStrings = Arrays.copyOf(mStrings, mStringCount * 2);
+        }
+        mStrings[mStringCount] = value;
+        mStringIndex.put(value, mStringCount);
+        return mStringCount++;
+    }
+
+    private String lookup(int index)
+    {
+        return index == NO_STRING ? null : mStrings[index];
+    }
+
+    private int checkPosition(int position)
+    {
+        if (position < 0 || position >= mSize) {
+            throw new IndexOutOfBoundsException("Position " + position + " out of " + mSize);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,151 @@
+package applico.googlezlpreview.models;
+
+/**
+ * Evenly spaced samples of a value over time, kept in a primitive array together with precomputed min/max
+ * levels for drawing it at any zoom.  Level 0 is the samples themselves, every level above it buckets
+ * {@link #LEVEL_FACTOR} buckets of the level below into one and keeps their minimum and maximum.  Drawing picks
+ * the level with about one bucket per pixel, so the cost depends on the width of the chart instead of the
+ * number of samples while peaks and dips still show up.
+ * <p>
+ * Built once, usually on a background thread, and only read afterwards.
+ */
+public class TimeSeries {
+
+    public static final int LEVEL_FACTOR = 4;
+
+    private final long mStartMillis;
+    private final long mIntervalMillis;
+    private final int mSize;
+    //[level][bucket], level 0 shares the sample array for both
+    private final float[][] mMins;
+    private final float[][] mMaxs;
+
+    /**
+     * @param startMillis time of the first sample
+     * @param intervalMillis time between samples
+     * @param values the samples, the series takes ownership of the array
+     */
+    public TimeSeries(long startMillis, long intervalMillis, float[] values)
+    {
+        mStartMillis = startMillis;
+        mIntervalMillis = intervalMillis;
+        mSize = values.length;
+
+        int levels = 1;
+        for (int size = mSize; size > 1; size = (size + LEVEL_FACTOR - 1) / LEVEL_FACTOR) {
+            levels++;
+        }
+        mMins = new float[levels][];
+        mMaxs = new float[levels][];
+        mMins[0] = values;
+        mMaxs[0] = values;
+        for (int level = 1; level < levels; level++) {
+            float[] lowerMins = mMins[level - 1];
+            float[] lowerMaxs = mMaxs[level - 1];
+            int size = (lowerMins.length + LEVEL_FACTOR - 1) / LEVEL_FACTOR;
+            float[] mins = new float[size];
+            float[] maxs = new float[size];
+            for (int i = 0; i < size; i++) {
+                int from = i * LEVEL_FACTOR;
+                int to = Math.min(from + LEVEL_FACTOR, lowerMins.length);
+                float min = lowerMins[from];
+                float max = lowerMaxs[from];
+                for (int j = from + 1; j < to; j++) {
+                    min = Math.min(min, lowerMins[j]);
+                    max = Math.max(max, lowerMaxs[j]);
+                }
+                mins[i] = min;
+                maxs[i] = max;
+            }
+            mMins[level] = mins;
+            mMaxs[level] = maxs;
+        }
+    }
+
+    public int size()
+    {
+        return mSize;
+    }
+
+    public long getStartMillis()
+    {
+        return mStartMillis;
+    }
+
+    public long getIntervalMillis()
+    {
+        return mIntervalMillis;
+    }
+
+    public float getValue(int index)
+    {
+        return mMins[0][index];
+    }
+
+    public int getLevelCount()
+    {
+        return mMins.length;
+    }
+
+    /**
+     * @param level
+     * @return how many samples a bucket of the level covers
+     */
+    public int getBucketSize(int level)
+    {
+        int size = 1;
+        for (int i = 0; i < level; i++) {
+            size *= LEVEL_FACTOR;
+        }
+        return size;
+    }
+
+    public int getLevelSize(int level)
+    {
+        return mMins[level].length;
+    }
+
+    public float getMin(int level, int bucket)
+    {
+        return mMins[level][bucket];
+    }
+
+    public float getMax(int level, int bucket)
+    {
+        return mMaxs[level][bucket];
+    }
+
+    /**
+     * @return the smallest sample, 0 for an empty series
+     */
+    public float getMinValue()
+    {
+        return mSize == 0 ? 0 : mMins[mMins.length - 1][0];
+    }
+
+    public float getMaxValue()
+    {
+        return mSize == 0 ? 0 : mMaxs[mMaxs.length - 1][0];
+    }
+
+    /**
+     * The coarsest level that still has at least one bucket per pixel for the visible samples
+     * @param visibleSamples
+     * @param pixelWidth
+     * @return
+     */
+    public int selectLevel(double visibleSamples, int pixelWidth)
+    {
+        if (pixelWidth <= 0) {
+            return mMins.length - 1;
+        }
+        double samplesPerPixel = visibleSamples / pixelWidth;
+        int level = 0;
+        int bucketSize = LEVEL_FACTOR;
+        while (level < mMins.length - 1 && bucketSize <= samplesPerPixel) {
+            level++;
+            bucketSize *= LEVEL_FACTOR;
+        }
+        return level;
+    }
+}
@@ -0,0 +1,62 @@
+package applico.googlezlpreview.models;
+
+/**
+ * The most recent posts of a stream, newest first.  The window has a fixed capacity and adding to a full window
+ * overwrites the oldest post, so it holds constant memory however many posts go through it.
+ * <p>
+ * Not thread safe, the UI owns it.
+ */
+public class TweetWindow {
+
+    private final String[] mAuthors;
+    private final String[] mTexts;
+    //Slot the next post goes into
+    private int mHead;
+    private int mSize;
+
+    public TweetWindow(int capacity)
+    {
+        mAuthors = new String[capacity];
+        mTexts = new String[capacity];
+    }
+
+    public void add(String author, String text)
+    {
+        mAuthors[mHead] = author;
+        mTexts[mHead] = text;
+        mHead = (mHead + 1) % mAuthors.length;
+        if (mSize < mAuthors.length) {
+            mSize++;
+        }
+    }
+
+    public int size()
+    {
+        return mSize;
+    }
+
+    public int getCapacity()
+    {
+        return mAuthors.length;
+    }
+
+    /**
+     * @param position 0 is the newest post
+     * @return
+     */
+    public String getAuthor(int position)
+    {
+        return mAuthors[slot(position)];
+    }
+
+    public String getText(int position)
+    {
+        return mTexts[slot(position)];
+    }
+
+    private int slot(int position)
+    {
+        int capacity = mAuthors.length;
+        return (mHead - 1 - position + capacity) % capacity;
+    }
+}
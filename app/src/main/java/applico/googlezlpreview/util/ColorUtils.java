@@ -0,0 +1,31 @@
+package applico.googlezlpreview.util;
+
+/**
+ * Color math that doesn't need the framework, colors are packed ARGB ints like {@link android.graphics.Color}
+ */
+public class ColorUtils {
+
+    private ColorUtils() {
+    }
+
+    /**
+     * RGB value for shaded color, the channels are scaled by (100 + percent)% and clamped.  The result is opaque.
+     * @param color
+     * @param percent positive to lighten, negative to darken
+     * @return
+     */
+    public static int getShadedColor(int color, int percent)
+    {
+        int factor = 100 + percent;
+        int r = shadeChannel((color >> 16) & 0xFF, factor);
+        int g = shadeChannel((color >> 8) & 0xFF, factor);
+        int b = shadeChannel(color & 0xFF, factor);
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int shadeChannel(int channel, int factor)
+    {
+        int shaded = (channel * factor) / 100;
+        return (shaded < 255) ? shaded : 255;
+    }
+}
@@ -0,0 +1,219 @@
+package applico.googlezlpreview.views;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+import applico.googlezlpreview.metrics.FrameMonitor;
+import applico.googlezlpreview.models.TimeSeries;
+
+/**
+ * Line chart of a {@link TimeSeries} that can be zoomed with a pinch and panned with a drag.  Every pixel column
+ * is drawn as the min/max range of the samples under it, read from the level of the series with about one bucket
+ * per pixel, so a frame costs the same for a day or a year of samples.
+ * <p>
+ * The line segments go into a float array sized with the view and are drawn with a single drawLines call, nothing
+ * is allocated while drawing or handling gestures.
+ * @author Matt Powers
+ */
+public class ChartView extends View {
+
+    private static String LOG_TAG = ChartView.class.getSimpleName();
+
+    //Never zoom in further than this many samples across the view
+    private static final int MIN_VISIBLE_SAMPLES = 30;
+    private static final int DEFAULT_LINE_COLOR = 0xFF3F51B5;
+    private static final float LINE_WIDTH_DP = 1.5f;
+    private static final float PADDING_DP = 8;
+
+    private final Paint mLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final ScaleGestureDetector mScaleDetector;
+    private final GestureDetector mGestureDetector;
+    private float mPadding;
+
+    private TimeSeries mSeries;
+    //Visible window, in samples
+    private double mVisibleStart;
+    private double mVisibleCount;
+
+    //Segments for drawLines, 4 floats each, two per pixel column at most
+    private float[] mLines = new float[0];
+
+    public ChartView(Context context) {
+        this(context, null);
+    }
+
+    public ChartView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public ChartView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        float density = getResources().getDisplayMetrics().density;
+        mPadding = PADDING_DP * density;
+        mLinePaint.setStyle(Paint.Style.STROKE);
+        mLinePaint.setStrokeWidth(LINE_WIDTH_DP * density);
+        mLinePaint.setColor(DEFAULT_LINE_COLOR);
+        mScaleDetector = new ScaleGestureDetector(context, new ScaleListener());
+        mGestureDetector = new GestureDetector(context, new PanListener());
+    }
+
+    /**
+     * Show a series, zoomed all the way out
+     * @param series may be null to clear the chart
+     */
+    public void setSeries(TimeSeries series)
+    {
+        mSeries = series;
+        mVisibleStart = 0;
+        mVisibleCount = series != null ? series.size() : 0;
+        invalidate();
+    }
+
+    public void setLineColor(int color)
+    {
+        mLinePaint.setColor(color);
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mLines = new float[(w + 2) * 8];
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        TimeSeries series = mSeries;
+        int width = getWidth();
+        if (series == null || series.size() < 2 || width == 0) {
+            return;
+        }
+
+        float minValue = series.getMinValue();
+        float range = Math.max(series.getMaxValue() - minValue, 1e-6f);
+        float top = mPadding;
+        float scaleY = (getHeight() - 2 * mPadding) / range;
+        float bottom = getHeight() - mPadding;
+
+        double samplesPerPixel = mVisibleCount / width;
+        int count = 0;
+        if (samplesPerPixel < 1) {
+            //Zoomed in past one sample per pixel, connect the samples themselves
+            int first = Math.max(0, (int) Math.floor(mVisibleStart));
+            int last = Math.min(series.size() - 1, (int) Math.ceil(mVisibleStart + mVisibleCount));
+            float pixelsPerSample = (float) (1 / samplesPerPixel);
+            for (int i = first; i < last && count + 4 <= mLines.length; i++) {
+                mLines[count++] = (float) ((i - mVisibleStart) * pixelsPerSample);
+                mLines[count++] = bottom - (series.getValue(i) - minValue) * scaleY;
+                mLines[count++] = (float) ((i + 1 - mVisibleStart) * pixelsPerSample);
+                mLines[count++] = bottom - (series.getValue(i + 1) - minValue) * scaleY;
+            }
+        } else {
+            int level = series.selectLevel(mVisibleCount, width);
+            int bucketSize = series.getBucketSize(level);
+            int levelSize = series.getLevelSize(level);
+            float previousMin = Float.NaN;
+            float previousMax = Float.NaN;
+            for (int x = 0; x < width; x++) {
+                int from = (int) ((mVisibleStart + x * samplesPerPixel) / bucketSize);
+                int to = (int) Math.ceil((mVisibleStart + (x + 1) * samplesPerPixel) / bucketSize);
+                to = Math.min(Math.max(to, from + 1), levelSize);
+                if (from >= levelSize) {
+                    break;
+                }
+                float min = series.getMin(level, from);
+                float max = series.getMax(level, from);
+                for (int b = from + 1; b < to; b++) {
+                    min = Math.min(min, series.getMin(level, b));
+                    max = Math.max(max, series.getMax(level, b));
+                }
+                float yMin = bottom - (min - minValue) * scaleY;
+                float yMax = bottom - (max - minValue) * scaleY;
+
+                //Join up with the previous column where the ranges don't touch, in pixels so up is a smaller y
+                if (previousMax > yMin) {
+                    //Previous range entirely below this one
+                    count = addLine(count, x - 1, previousMax, x, yMin);
+                } else if (previousMin < yMax) {
+                    //Previous range entirely above this one
+                    count = addLine(count, x - 1, previousMin, x, yMax);
+                }
+                count = addLine(count, x, yMin, x, Math.min(yMax, yMin - 1));
+                previousMin = yMin;
+                previousMax = yMax;
+            }
+        }
+        canvas.save();
+        canvas.clipRect(0, top - mPadding, width, bottom + mPadding);
+        canvas.drawLines(mLines, 0, count, mLinePaint);
+        canvas.restore();
+    }
+
+    private int addLine(int count, float x0, float y0, float x1, float y1)
+    {
+        mLines[count++] = x0;
+        mLines[count++] = y0;
+        mLines[count++] = x1;
+        mLines[count++] = y1;
+        return count;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mSeries == null) {
+            return super.onTouchEvent(event);
+        }
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                //Pans and pinches are ours, not the pager's or the scroll view's
+                getParent().requestDisallowInterceptTouchEvent(true);
+                FrameMonitor.getInstance().begin(FrameMonitor.SCROLL);
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                FrameMonitor.getInstance().end(FrameMonitor.SCROLL);
+                break;
+        }
+        mScaleDetector.onTouchEvent(event);
+        mGestureDetector.onTouchEvent(event);
+        return true;
+    }
+
+    private void setVisible(double start, double count)
+    {
+        int size = mSeries.size();
+        mVisibleCount = Math.max(Math.min(count, size), Math.min(MIN_VISIBLE_SAMPLES, size));
+        mVisibleStart = Math.max(0, Math.min(start, size - mVisibleCount));
+        invalidate();
+    }
+
+    private class ScaleListener extends ScaleGestureDetector.SimpleOnScaleGestureListener {
+        @Override
+        public boolean onScale(ScaleGestureDetector detector) {
+            //Keep the sample under the focus point where it is
+            double samplesPerPixel = mVisibleCount / getWidth();
+            double focus = mVisibleStart + detector.getFocusX() * samplesPerPixel;
+            double count = mVisibleCount / detector.getScaleFactor();
+            setVisible(focus - detector.getFocusX() * count / getWidth(), count);
+            return true;
+        }
+    }
+
+    private class PanListener extends GestureDetector.SimpleOnGestureListener {
+        @Override
+        public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+            if (mScaleDetector.isInProgress()) {
+                return false;
+            }
+            setVisible(mVisibleStart + distanceX * mVisibleCount / getWidth(), mVisibleCount);
+            return true;
+        }
+    }
+}
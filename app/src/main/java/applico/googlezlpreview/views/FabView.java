@@ -2,6 +2,7 @@ package applico.googlezlpreview.views;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Outline;
@@ -11,6 +12,7 @@ import android.graphics.drawable.AnimatedStateListDrawable;
 import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.Property;
 import android.view.View;
 import android.widget.ImageView;
 
@@ -46,6 +48,21 @@ public class FabView extends ImageView {
     private float mScreenDensityFloat;
     private Drawable mDrawable;
 
+    //Radius and stroke width the current geometry was computed for
+    private int mGeometryRadius = -1;
+    private int mGeometryStrokeWidth = -1;
+
+    //Pending changes while a batch is open, see beginUpdate()
+    private int mUpdateDepth;
+    private int mDirtyFlags;
+
+    //Optional bitmap cache of the static circle
+    private boolean mCacheLayer;
+    private boolean mLayerDirty = true;
+    private int mLayerPadding;
+    private Bitmap mLayerBitmap;
+    private final Canvas mLayerCanvas = new Canvas();
+
 
     //Default values
     //TODO change this to pull from the dimensions file.
@@ -55,6 +72,11 @@ public class FabView extends ImageView {
     private static final int DEFAULT_START_ANGLE = 0;
     private static final int DEFAULT_END_ANGLE = 360;
     private static final int DEFAULT_STROKE_WIDTH = 2;
+    private static final int FULL_CIRCLE = 360;
+
+    //What needs redoing after a property change
+    private static final int DIRTY_DRAW = 1;
+    private static final int DIRTY_GEOMETRY = 1 << 1;
 
     //Default FAB sizes according to the material design
     //docs: http://www.google.com/design/spec/components/buttons.html#buttons-main-buttons
@@ -65,6 +87,58 @@ public class FabView extends ImageView {
     private static final int FAB_SIZE_NORMAL = 0;
     private static final int FAB_SIZE_MINI= 1;
 
+    /**
+     * Animatable properties, e.g. {@code ObjectAnimator.ofArgb(fab, FabView.FILL_COLOR, color)}.  None of them
+     * trigger a layout pass.
+     */
+    public static final Property<FabView, Integer> FILL_COLOR = new Property<FabView, Integer>(Integer.class, "cFillColor") {
+        @Override
+        public Integer get(FabView view) {
+            return view.getCFillColor();
+        }
+
+        @Override
+        public void set(FabView view, Integer value) {
+            view.setCFillColor(value);
+        }
+    };
+
+    public static final Property<FabView, Integer> STROKE_COLOR = new Property<FabView, Integer>(Integer.class, "cStrokeColor") {
+        @Override
+        public Integer get(FabView view) {
+            return view.getCStrokeColor();
+        }
+
+        @Override
+        public void set(FabView view, Integer value) {
+            view.setCStrokeColor(value);
+        }
+    };
+
+    public static final Property<FabView, Integer> RADIUS = new Property<FabView, Integer>(Integer.class, "cRadius") {
+        @Override
+        public Integer get(FabView view) {
+            return view.getCRadius();
+        }
+
+        @Override
+        public void set(FabView view, Integer value) {
+            view.setCRadius(value);
+        }
+    };
+
+    public static final Property<FabView, Integer> STROKE_WIDTH = new Property<FabView, Integer>(Integer.class, "cStrokeWidth") {
+        @Override
+        public Integer get(FabView view) {
+            return view.getCStrokeWidth();
+        }
+
+        @Override
+        public void set(FabView view, Integer value) {
+            view.setCStrokeWidth(value);
+        }
+    };
+
     //TODO - support the context only constructor
     public FabView(Context context) {
 
@@ -92,19 +166,117 @@ public class FabView extends ImageView {
     }
 
 
+    /**
+     * Everything that depends on the size is computed in {@link #updateGeometry()}, so drawing is only the
+     * circle and the drawable.
+     * @param canvas
+     */
     @Override
     protected void onDraw(Canvas canvas) {
         canvas.translate(1, 1);
-        canvas.drawArc(mCircleArc, mStartAngle, mEndAngle, true, mCirclePaint);
-        canvas.drawArc(mCircleArc, mStartAngle, mEndAngle, true, mStrokePaint);
+        if (mCacheLayer) {
+            if (mLayerDirty) {
+                renderLayer();
+            }
+            canvas.drawBitmap(mLayerBitmap, -mLayerPadding, -mLayerPadding, null);
+        } else {
+            drawCircle(canvas);
+        }
+        if (mDrawable != null) {
+            mDrawable.draw(canvas);
+        }
+    }
+
+    /**
+     * ImageView resets the bounds of its drawable when it is laid out, so put ours back afterwards
+     */
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        applyDrawableBounds();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mLayerBitmap != null) {
+            mLayerBitmap.recycle();
+            mLayerBitmap = null;
+            mLayerDirty = true;
+        }
+    }
+
+    private void drawCircle(Canvas canvas)
+    {
+        boolean drawStroke = mStrokePaint.getAlpha() != 0;
+        if (mEndAngle >= FULL_CIRCLE) {
+            float cx = mCircleArc.centerX();
+            float cy = mCircleArc.centerY();
+            float radius = mCircleArc.width() / 2;
+            canvas.drawCircle(cx, cy, radius, mCirclePaint);
+            if (drawStroke) {
+                canvas.drawCircle(cx, cy, radius, mStrokePaint);
+            }
+        } else {
+            canvas.drawArc(mCircleArc, mStartAngle, mEndAngle, true, mCirclePaint);
+            if (drawStroke) {
+                canvas.drawArc(mCircleArc, mStartAngle, mEndAngle, true, mStrokePaint);
+            }
+        }
+    }
+
+    /**
+     * Draw the circle into the layer bitmap, the bitmap is only reallocated when the size changes
+     */
+    private void renderLayer()
+    {
+        mLayerPadding = (mCircleStrokeWidth + 1) / 2 + 1;
+        int size = (int) Math.ceil(mCircleArc.width()) + mLayerPadding * 2;
+        if (mLayerBitmap == null || mLayerBitmap.getWidth() != size) {
+            if (mLayerBitmap != null) {
+                mLayerBitmap.recycle();
+            }
+            mLayerBitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+            mLayerCanvas.setBitmap(mLayerBitmap);
+        } else {
+            mLayerBitmap.eraseColor(Color.TRANSPARENT);
+        }
+        int save = mLayerCanvas.save();
+        mLayerCanvas.translate(mLayerPadding, mLayerPadding);
+        drawCircle(mLayerCanvas);
+        mLayerCanvas.restoreToCount(save);
+        mLayerDirty = false;
+    }
+
+    /**
+     * Recompute the arc, outline and drawable position for the current radius and stroke width
+     */
+    private void updateGeometry()
+    {
+        int circleDiameter = mCircleRadius * 2 - mCircleStrokeWidth;
+        mCircleArc.set(0, 0, circleDiameter, circleDiameter);
+
+        //Set the outline for the elevation attribute
+        mOutline.setOval(0, 0, (mCircleRadius * 2), (mCircleRadius * 2));
+        setOutline(mOutline);
+
+        //Compute the offset for the drawable
+        mOffsetLeft = mCircleRadius - (mDrawableWidth / 2);
+        mOffsetTop = mCircleRadius - (mDrawableHeight / 2);
+        applyDrawableBounds();
+
+        mGeometryRadius = mCircleRadius;
+        mGeometryStrokeWidth = mCircleStrokeWidth;
+        mLayerDirty = true;
+    }
+
+    private void applyDrawableBounds()
+    {
         if (mDrawable != null) {
             //left top right bottom
-            mDrawable.setBounds(mOffsetLeft,mOffsetTop,mDrawableWidth+mOffsetLeft,
+            mDrawable.setBounds(mOffsetLeft, mOffsetTop, mDrawableWidth + mOffsetLeft,
                     mDrawableHeight + mOffsetTop);
-            mDrawable.draw(canvas);
         }
-        this.setOutline(mOutline);
-        setClipToOutline(true);
     }
 
     /**
@@ -128,8 +300,9 @@ public class FabView extends ImageView {
             }
         }
 
-        int circleDiameter = mCircleRadius * 2 - mCircleStrokeWidth;
-        mCircleArc = new RectF(0, 0, circleDiameter, circleDiameter);
+        if (mCircleRadius != mGeometryRadius || mCircleStrokeWidth != mGeometryStrokeWidth) {
+            updateGeometry();
+        }
         int measuredHeight = measureHeight(heightMeasureSpec);
         setMeasuredDimension(measuredWidth, measuredHeight);
 
@@ -193,6 +366,7 @@ public class FabView extends ImageView {
         mCircleStrokeWidth = attrsArray.getInteger(R.styleable.fab_cStrokeWidth, DEFAULT_STROKE_WIDTH);
         mFabSize = attrsArray.getInteger(R.styleable.fab_cSize, DEFAULT_RADIUS);
         mDrawable = attrsArray.getDrawable(R.styleable.fab_cDrawable);
+        mCacheLayer = attrsArray.getBoolean(R.styleable.fab_cCacheLayer, false);
 
         mStartAngle = DEFAULT_START_ANGLE;
         mEndAngle = DEFAULT_END_ANGLE;
@@ -215,18 +389,58 @@ public class FabView extends ImageView {
             }
         }
 
-        //Compute the offset for the drawable
-        mOffsetLeft = mCircleRadius - (mDrawableWidth/2);
-        mOffsetTop = mCircleRadius - (mDrawableWidth/2);
-
-
-        //Set the outline for the elevation attribute
+        //The outline only changes with the geometry, so clipping to it is set up once
+        mCircleArc = new RectF();
         mOutline = new Outline();
-        mOutline.setOval(0,0,(mCircleRadius * 2),(mCircleRadius *2));
+        setClipToOutline(true);
 
         attrsArray.recycle();
         this.bringToFront();
         super.setImageDrawable(mDrawable);
+        updateGeometry();
+    }
+
+    /**
+     * Start a batch of property changes.  Setters called until the matching {@link #commitUpdate()} only record
+     * what changed, the commit then recomputes the geometry at most once and invalidates once.  Batches nest.
+     */
+    public void beginUpdate()
+    {
+        mUpdateDepth++;
+    }
+
+    /**
+     * End a batch started with {@link #beginUpdate()} and apply everything that changed in it
+     */
+    public void commitUpdate()
+    {
+        if (mUpdateDepth > 0) {
+            mUpdateDepth--;
+        }
+        if (mUpdateDepth == 0) {
+            applyDirty();
+        }
+    }
+
+    private void markDirty(int flags)
+    {
+        mDirtyFlags |= flags;
+        if (mUpdateDepth == 0) {
+            applyDirty();
+        }
+    }
+
+    private void applyDirty()
+    {
+        if (mDirtyFlags == 0) {
+            return;
+        }
+        if ((mDirtyFlags & DIRTY_GEOMETRY) != 0) {
+            updateGeometry();
+        }
+        mLayerDirty = true;
+        mDirtyFlags = 0;
+        invalidate();
     }
 
     /**
@@ -245,7 +459,7 @@ public class FabView extends ImageView {
     public void setPaint(Paint p)
     {
         mCirclePaint = p;
-        invalidate();
+        markDirty(DIRTY_DRAW);
     }
 
     /**
@@ -264,7 +478,7 @@ public class FabView extends ImageView {
     public void setStrokePaint(Paint p)
     {
         mStrokePaint = p;
-        invalidate();
+        markDirty(DIRTY_DRAW);
     }
 
     /**
@@ -273,8 +487,8 @@ public class FabView extends ImageView {
      */
     public void setCircleArc(RectF arc)
     {
-        mCircleArc = arc;
-        invalidate();
+        mCircleArc.set(arc);
+        markDirty(DIRTY_DRAW);
     }
 
     /**
@@ -288,13 +502,15 @@ public class FabView extends ImageView {
 
     /**
      * Set the circle radius on the view..have fun creating Pacman
+     * The outline and drawable position follow the radius, the measured size does not, so animate the radius
+     * within the size the view was laid out at.
      * @param r
      */
 
     public void setCRadius(int r)
     {
         mCircleRadius = r;
-        invalidate();
+        markDirty(DIRTY_GEOMETRY);
     }
 
     /**
@@ -314,7 +530,7 @@ public class FabView extends ImageView {
     {
         mCircleFillColor = color;
         mCirclePaint.setColor(mCircleFillColor);
-        invalidate();
+        markDirty(DIRTY_DRAW);
     }
 
     /**
@@ -343,7 +559,7 @@ public class FabView extends ImageView {
     {
         mCircleStrokeColor = color;
         mStrokePaint.setColor(mCircleStrokeColor);
-        invalidate();
+        markDirty(DIRTY_DRAW);
     }
 
     /**
@@ -363,7 +579,7 @@ public class FabView extends ImageView {
     {
         mCircleStrokeWidth = width;
         mStrokePaint.setStrokeWidth(mCircleStrokeWidth);
-        invalidate();
+        markDirty(DIRTY_GEOMETRY);
     }
 
     /**
@@ -384,9 +600,36 @@ public class FabView extends ImageView {
         mDrawable = drawable;
         //invalidate();
         super.setImageDrawable(drawable);
+        applyDrawableBounds();
 
     }
 
+    /**
+     * Draw the circle from a cached bitmap instead of drawing the shape every frame.  Worth it when the view
+     * is redrawn a lot, e.g. floating over a scrolling list, and the colors don't change.
+     * @param cacheLayer
+     */
+    public void setCacheLayer(boolean cacheLayer)
+    {
+        if (mCacheLayer != cacheLayer) {
+            mCacheLayer = cacheLayer;
+            markDirty(DIRTY_DRAW);
+        }
+    }
+
+    public boolean isCacheLayer()
+    {
+        return mCacheLayer;
+    }
+
+    /**
+     * Call after changing the paint returned by {@link #getPaint()} or {@link #getStrokePaint()} directly
+     */
+    public void invalidateLayer()
+    {
+        markDirty(DIRTY_DRAW);
+    }
+
 
 
 
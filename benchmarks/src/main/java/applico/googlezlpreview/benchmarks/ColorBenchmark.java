@@ -0,0 +1,50 @@
+package applico.googlezlpreview.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import applico.googlezlpreview.util.ColorUtils;
+
+/**
+ * Shading math of the detail screen tint, a single shade and the whole ramp the tint animator builds
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorBenchmark {
+
+    //Same range as the detail screen, 150% down to -50%
+    private static final int RAMP_START = 150;
+    private static final int RAMP_END = -50;
+
+    private int mColor = 0xFFE0F2F1;
+    private int mPercent = -37;
+    private final int[] mRamp = new int[RAMP_START - RAMP_END + 1];
+
+    @Benchmark
+    public int shade()
+    {
+        return ColorUtils.getShadedColor(mColor, mPercent);
+    }
+
+    @Benchmark
+    public int[] shadeRamp()
+    {
+        for (int i = 0; i < mRamp.length; i++) {
+            mRamp[i] = ColorUtils.getShadedColor(mColor, RAMP_START - i);
+        }
+        return mRamp;
+    }
+}
@@ -0,0 +1,63 @@
+package applico.googlezlpreview.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import applico.googlezlpreview.images.DecodeSize;
+
+/**
+ * Sample size and scale picked for a decode, for a card sized and a full width request
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeSizeBenchmark {
+
+    @Param({"2048x1536", "4096x3072"})
+    public String source;
+
+    @Param({"1080x900", "1080x0"})
+    public String request;
+
+    private int mSrcWidth;
+    private int mSrcHeight;
+    private int mReqWidth;
+    private int mReqHeight;
+
+    @Setup
+    public void setUp()
+    {
+        String[] src = source.split("x");
+        String[] req = request.split("x");
+        mSrcWidth = Integer.parseInt(src[0]);
+        mSrcHeight = Integer.parseInt(src[1]);
+        mReqWidth = Integer.parseInt(req[0]);
+        mReqHeight = Integer.parseInt(req[1]);
+    }
+
+    @Benchmark
+    public int inSampleSize()
+    {
+        return DecodeSize.calculateInSampleSize(mSrcWidth, mSrcHeight, mReqWidth, mReqHeight);
+    }
+
+    @Benchmark
+    public int scale()
+    {
+        return DecodeSize.calculateScale(mSrcWidth, mSrcHeight, mReqWidth, mReqHeight);
+    }
+}
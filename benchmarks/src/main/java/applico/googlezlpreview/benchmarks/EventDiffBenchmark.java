@@ -0,0 +1,87 @@
+package applico.googlezlpreview.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import applico.googlezlpreview.data.EventDiff;
+import applico.googlezlpreview.models.EventStore;
+
+/**
+ * Diffing a refreshed ranking against the current one, for a refresh that moves a handful of events and one that
+ * reshuffles everything
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDiffBenchmark {
+
+    @Param({"100", "1000"})
+    public int size;
+
+    @Param({"few", "shuffled"})
+    public String change;
+
+    //Fixed so every run diffs the same rankings
+    private static final long SEED = 2012;
+    private static final int FEW_MOVES = 5;
+    private static final int FEW_NEW = 2;
+
+    private EventStore mOld;
+    private EventStore mNew;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(SEED);
+        List<String> titles = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            titles.add("Event " + i);
+        }
+        mOld = toRanking(titles);
+
+        if ("shuffled".equals(change)) {
+            Collections.shuffle(titles, random);
+        } else {
+            for (int i = 0; i < FEW_MOVES; i++) {
+                titles.add(random.nextInt(size), titles.remove(random.nextInt(size)));
+            }
+            for (int i = 0; i < FEW_NEW; i++) {
+                titles.set(random.nextInt(size), "New event " + i);
+            }
+        }
+        mNew = toRanking(titles);
+    }
+
+    @Benchmark
+    public EventDiff compute()
+    {
+        return EventDiff.compute(mOld, mNew);
+    }
+
+    private static EventStore toRanking(List<String> titles)
+    {
+        EventStore store = new EventStore(titles.size());
+        for (String title : titles) {
+            store.add(title, null, 0);
+        }
+        return store;
+    }
+}
@@ -0,0 +1,74 @@
+package applico.googlezlpreview.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import applico.googlezlpreview.models.Event;
+import applico.googlezlpreview.models.EventStore;
+
+/**
+ * Building a ranking the way the feed parser does and reading it back through the flyweight like a bind does
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventStoreBenchmark {
+
+    @Param({"10", "1000"})
+    public int size;
+
+    //The feed repeats its share links and images a lot, titles are unique
+    private static final int DISTINCT_LINKS = 8;
+
+    private String[] mTitles;
+    private String[] mLinks;
+    private EventStore mStore;
+    private final Event mEvent = new Event();
+
+    @Setup
+    public void setUp()
+    {
+        mTitles = new String[size];
+        mLinks = new String[size];
+        for (int i = 0; i < size; i++) {
+            mTitles[i] = "Event " + i;
+            mLinks[i] = "http://www.google.com/zeitgeist/" + (i % DISTINCT_LINKS);
+        }
+        mStore = build();
+    }
+
+    @Benchmark
+    public EventStore build()
+    {
+        EventStore store = new EventStore();
+        for (int i = 0; i < size; i++) {
+            store.add(mTitles[i], mLinks[i], i % 3);
+        }
+        return store;
+    }
+
+    @Benchmark
+    public int readAll()
+    {
+        int sum = 0;
+        for (int i = 0; i < size; i++) {
+            Event event = mStore.get(i, mEvent);
+            sum += event.eventRank + event.eventTitle.length();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,67 @@
+package applico.googlezlpreview.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import applico.googlezlpreview.data.QueryLogRanker;
+
+/**
+ * Counting query log lines, the cost per line decides how long a multi gigabyte log takes to rank.  Queries
+ * follow a long tail, with few or many distinct queries compared to the counters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryLogBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int distinctQueries;
+
+    private static final long SEED = 2012;
+    private static final int LINES = 4096;
+    private static final int COUNTERS = 5000;
+    private static final String[] CATEGORIES = {"searches", "people", "events", "feature films", "tv shows",
+            "athletes", "consumer electronics", "performing artists"};
+
+    private String[] mLines;
+    private QueryLogRanker mRanker;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(SEED);
+        mLines = new String[LINES];
+        for (int i = 0; i < LINES; i++) {
+            //Cubing a uniform value makes the low query numbers the heavy hitters
+            double skew = random.nextDouble();
+            int query = (int) (skew * skew * skew * distinctQueries);
+            mLines[i] = CATEGORIES[random.nextInt(CATEGORIES.length)] + "\tQuery  " + query;
+        }
+        mRanker = new QueryLogRanker(CATEGORIES, COUNTERS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void offer()
+    {
+        for (String line : mLines) {
+            mRanker.offer(line);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package applico.googlezlpreview.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import applico.googlezlpreview.data.SearchIndex;
+import applico.googlezlpreview.models.EventStore;
+
+/**
+ * One keystroke of search over 8 categories, for a query that narrows down to a few events and one that matches
+ * most of them.  A keystroke has to stay well under a millisecond.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchIndexBenchmark {
+
+    @Param({"100", "1000"})
+    public int eventsPerCategory;
+
+    @Param({"ha", "e", "hurricane sa"})
+    public String query;
+
+    private static final long SEED = 2012;
+    private static final int CATEGORIES = 8;
+    private static final int LIMIT = 50;
+    private static final String[] WORDS = {"hurricane", "sandy", "gangnam", "style", "olympics", "election",
+            "whitney", "houston", "harry", "styles", "diablo", "event", "hunger", "games", "kate", "middleton"};
+
+    private SearchIndex mIndex;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(SEED);
+        mIndex = new SearchIndex();
+        for (int c = 0; c < CATEGORIES; c++) {
+            EventStore events = new EventStore(eventsPerCategory);
+            for (int i = 0; i < eventsPerCategory; i++) {
+                events.add(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i,
+                        null, 0);
+            }
+            mIndex.add(SearchIndex.buildSegment(c, events));
+        }
+    }
+
+    @Benchmark
+    public EventStore search()
+    {
+        return mIndex.search(query, LIMIT);
+    }
+}
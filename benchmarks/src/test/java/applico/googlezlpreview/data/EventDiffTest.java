@@ -0,0 +1,207 @@
+package applico.googlezlpreview.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import applico.googlezlpreview.models.EventStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays the steps of a diff on the old titles, the way an adapter would, and checks they end up as the new ones
+ */
+public class EventDiffTest {
+
+    private static final long SEED = 2012;
+    private static final int RANDOM_RUNS = 500;
+
+    @Test
+    public void identicalRankingsNeedNoSteps()
+    {
+        EventStore ranking = toRanking(Arrays.asList("a", "b", "c"));
+        assertEquals(0, EventDiff.compute(ranking, toRanking(Arrays.asList("a", "b", "c"))).size());
+    }
+
+    @Test
+    public void oneEventMovingUpIsOneMove()
+    {
+        Replay replay = replay(Arrays.asList("a", "b", "c", "d", "e"), Arrays.asList("a", "d", "b", "c", "e"));
+        assertEquals(1, replay.moves);
+        //Every event between the old and the new place changed rank
+        assertEquals(3, replay.changes);
+    }
+
+    @Test
+    public void insertsAndRemovesOnly()
+    {
+        Replay replay = replay(Arrays.asList("a", "b", "c"), Arrays.asList("x", "a", "c", "y"));
+        assertEquals(0, replay.moves);
+    }
+
+    @Test
+    public void repeatedTitlesAreMatchedInOrder()
+    {
+        replay(Arrays.asList("a", "b", "a", "c", "a"), Arrays.asList("a", "c", "a", "b"));
+    }
+
+    @Test
+    public void emptyRankings()
+    {
+        replay(Collections.<String>emptyList(), Arrays.asList("a", "b"));
+        replay(Arrays.asList("a", "b"), Collections.<String>emptyList());
+    }
+
+    @Test
+    public void randomRefreshesReproduceTheNewRanking()
+    {
+        Random random = new Random(SEED);
+        for (int run = 0; run < RANDOM_RUNS; run++) {
+            int size = random.nextInt(30);
+            List<String> oldTitles = new ArrayList<String>();
+            for (int i = 0; i < size; i++) {
+                oldTitles.add("Event " + random.nextInt(size + 5));
+            }
+            List<String> newTitles = new ArrayList<String>(oldTitles);
+            Collections.shuffle(newTitles, random);
+            int edits = random.nextInt(size + 1);
+            for (int i = 0; i < edits && !newTitles.isEmpty(); i++) {
+                int position = random.nextInt(newTitles.size());
+                switch (random.nextInt(3)) {
+                    case 0:
+                        newTitles.remove(position);
+                        break;
+                    case 1:
+                        newTitles.add(position, "New event " + random.nextInt(10));
+                        break;
+                    default:
+                        newTitles.add(random.nextInt(newTitles.size()), newTitles.remove(position));
+                        break;
+                }
+            }
+            replay(oldTitles, newTitles);
+        }
+    }
+
+    @Test
+    public void longestIncreasingRun()
+    {
+        int[] run = EventDiff.longestIncreasingRun(new int[] {3, 1, 2, 5, 4, 0});
+        assertEquals(3, run.length);
+        assertEquals(1, run[0]);
+        assertEquals(2, run[1]);
+        assertTrue(run[2] == 4 || run[2] == 5);
+        assertEquals(0, EventDiff.longestIncreasingRun(new int[0]).length);
+    }
+
+    /**
+     * Apply the diff of two rankings to the old titles and check the result
+     */
+    private static Replay replay(List<String> oldTitles, List<String> newTitles)
+    {
+        EventStore oldRanking = toRanking(oldTitles);
+        EventStore newRanking = toRanking(newTitles);
+        Replay replay = new Replay(oldTitles);
+        EventDiff.compute(oldRanking, newRanking).dispatch(replay);
+
+        String message = oldTitles + " -> " + newTitles;
+        assertEquals(message, newTitles.size(), replay.titles.size());
+        //Only events that weren't there before may be inserted
+        List<String> kept = new ArrayList<String>(oldTitles);
+        int inserted = 0;
+        for (String title : newTitles) {
+            if (!kept.remove(title)) {
+                inserted++;
+            }
+        }
+        assertEquals(message, inserted, Collections.frequency(replay.origins, null));
+        for (int i = 0; i < newTitles.size(); i++) {
+            Integer from = replay.origins.get(i);
+            if (from == null) {
+                //Inserted rows are bound from the new ranking
+                continue;
+            }
+            assertEquals(message, newTitles.get(i), replay.titles.get(i));
+            //A row the diff didn't touch has to show what it showed before, rank included
+            if (replay.changed == null || !replay.changed[i]) {
+                assertEquals(message, oldRanking.getRank(from), newRanking.getRank(i));
+            }
+        }
+        return replay;
+    }
+
+    private static EventStore toRanking(List<String> titles)
+    {
+        EventStore ranking = new EventStore(titles.size());
+        for (String title : titles) {
+            ranking.add(title, null, 0);
+        }
+        return ranking;
+    }
+
+    /**
+     * The titles as an adapter sees them, with the old position of every row that was there before
+     */
+    private static class Replay implements EventDiff.Callback {
+
+        final List<String> titles;
+        final List<Integer> origins = new ArrayList<Integer>();
+        boolean[] changed;
+        int moves;
+        int changes;
+        private boolean mChanging;
+
+        Replay(List<String> oldTitles)
+        {
+            titles = new ArrayList<String>(oldTitles);
+            for (int i = 0; i < oldTitles.size(); i++) {
+                origins.add(i);
+            }
+        }
+
+        @Override
+        public void onRemoved(int position) {
+            assertStructural();
+            titles.remove(position);
+            origins.remove(position);
+        }
+
+        @Override
+        public void onInserted(int position) {
+            assertStructural();
+            //Filled in from the new ranking once the steps are done
+            titles.add(position, null);
+            origins.add(position, null);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            assertStructural();
+            titles.add(toPosition, titles.remove(fromPosition));
+            origins.add(toPosition, origins.remove(fromPosition));
+            moves++;
+        }
+
+        @Override
+        public void onChanged(int position) {
+            if (!mChanging) {
+                mChanging = true;
+                changed = new boolean[titles.size()];
+            }
+            assertTrue(position >= 0 && position < titles.size());
+            changed[position] = true;
+            changes++;
+        }
+
+        private void assertStructural()
+        {
+            //Changes are reported at the final positions, after every structural step
+            assertTrue(!mChanging);
+        }
+    }
+}
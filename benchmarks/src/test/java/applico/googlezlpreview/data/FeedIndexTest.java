@@ -0,0 +1,100 @@
+package applico.googlezlpreview.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the page offsets against the offsets the events were written at
+ */
+public class FeedIndexTest {
+
+    private static final int PAGE_SIZE = 4;
+    private static final int[] CATEGORY_SIZES = {9, 0, 4, 1, 23};
+
+    private byte[] mFeed;
+    //Byte offset of every event, by category
+    private List<List<Long>> mEventStarts;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        mEventStarts = new ArrayList<List<Long>>();
+        write(out, "{ \"year\": 2012, \"note\": \"categories [ { not this\",\n  \"categories\": [\n");
+        for (int c = 0; c < CATEGORY_SIZES.length; c++) {
+            List<Long> starts = new ArrayList<Long>();
+            mEventStarts.add(starts);
+            write(out, c > 0 ? ",\n" : "");
+            //Nested events keys that aren't the category's events
+            write(out, "{ \"name\": \"c" + c + "\", \"meta\": { \"events\": [ {\"x\": 1} ] },\n  \"events\": [");
+            for (int e = 0; e < CATEGORY_SIZES[c]; e++) {
+                write(out, e > 0 ? ", " : " ");
+                starts.add((long) out.size());
+                write(out, "{ \"title\": \"Caf\u00e9 \\\"{[\\\\ \u65e5\u672c " + e + "\", \"image\": \"events\","
+                        + " \"tags\": [ [], {} ] }");
+            }
+            write(out, " ] }");
+        }
+        write(out, "\n] }\n");
+        mFeed = out.toByteArray();
+    }
+
+    @Test
+    public void recordsEveryPageStart() throws IOException
+    {
+        FeedIndex index = new FeedIndex(PAGE_SIZE);
+        readAll(new InputStreamReader(index.wrap(new ByteArrayInputStream(mFeed)), "UTF-8"));
+        assertPageStarts(index);
+    }
+
+    @Test
+    public void byteAtATimeAndSkips() throws IOException
+    {
+        FeedIndex index = new FeedIndex(PAGE_SIZE);
+        InputStream in = index.wrap(new ByteArrayInputStream(mFeed));
+        int b;
+        while ((b = in.read()) >= 0) {
+            in.skip(b % 3);
+        }
+        assertPageStarts(index);
+    }
+
+    private void assertPageStarts(FeedIndex index)
+    {
+        for (int c = 0; c < CATEGORY_SIZES.length; c++) {
+            List<Long> starts = mEventStarts.get(c);
+            int pages = (starts.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+            for (int page = 0; page < pages; page++) {
+                long start = index.getPageStart(c, page);
+                assertEquals("category " + c + " page " + page, (long) starts.get(page * PAGE_SIZE), start);
+                assertEquals('{', mFeed[(int) start]);
+            }
+            assertEquals(-1, index.getPageStart(c, pages));
+        }
+        assertEquals(-1, index.getPageStart(CATEGORY_SIZES.length, 0));
+    }
+
+    private static void readAll(Reader reader) throws IOException
+    {
+        char[] buffer = new char[100];
+        while (reader.read(buffer) >= 0) {
+            //Only read for the index
+        }
+    }
+
+    private static void write(ByteArrayOutputStream out, String text) throws IOException
+    {
+        out.write(text.getBytes("UTF-8"));
+    }
+}
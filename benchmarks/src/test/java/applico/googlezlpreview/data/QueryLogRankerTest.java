@@ -0,0 +1,65 @@
+package applico.googlezlpreview.data;
+
+import org.junit.Test;
+
+import applico.googlezlpreview.models.EventStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Parsing of log lines and turning the counts into rankings
+ */
+public class QueryLogRankerTest {
+
+    private static final String[] CATEGORIES = {"Trending", "People"};
+    private static final int COUNTERS = 10;
+    private static final int DEFAULT_IMAGE = 7;
+
+    @Test
+    public void parsesLines()
+    {
+        QueryLogRanker ranker = new QueryLogRanker(CATEGORIES, COUNTERS);
+        assertTrue(ranker.offer("trending\tGangnam  Style\t5"));
+        assertTrue(ranker.offer("Trending\t gangnam style "));
+        assertTrue(ranker.offer("Trending\tHurricane Sandy\t3"));
+        assertTrue(ranker.offer("People\tWhitney Houston"));
+        assertFalse(ranker.offer("Sports\tOlympics"));
+        assertFalse(ranker.offer("Trending"));
+        assertFalse(ranker.offer("Trending\t  "));
+        assertFalse(ranker.offer("Trending\tOlympics\tmany"));
+        assertFalse(ranker.offer("Trending\tOlympics\t0"));
+        assertEquals(9, ranker.getLineCount());
+        assertEquals(5, ranker.getSkippedCount());
+
+        EventStore ranking = ranker.getRanking(0, 10, null, DEFAULT_IMAGE);
+        assertEquals(2, ranking.size());
+        //Whitespace collapsed, shown as first seen
+        assertEquals("Gangnam Style", ranking.getTitle(0));
+        assertEquals("Hurricane Sandy", ranking.getTitle(1));
+        assertEquals(1, ranking.getRank(0));
+        assertEquals(2, ranking.getRank(1));
+        assertEquals("http://www.google.com/zeitgeist/2012/#search=Gangnam+Style", ranking.getShareLink(0));
+        assertEquals(DEFAULT_IMAGE, ranking.getImageId(0));
+
+        assertEquals(1, ranker.getRanking(1, 10, null, DEFAULT_IMAGE).size());
+    }
+
+    @Test
+    public void knownEventsKeepTheirLinkAndImage()
+    {
+        QueryLogRanker ranker = new QueryLogRanker(CATEGORIES, COUNTERS);
+        ranker.offer("Trending\tnew query\t2");
+        ranker.offer("Trending\thurricane sandy\t4");
+        EventStore known = new EventStore();
+        known.add("Gangnam Style", "gangnam link", 1);
+        known.add("Hurricane Sandy", "sandy link", 2);
+
+        EventStore ranking = ranker.getRanking(0, 1, known, DEFAULT_IMAGE);
+        assertEquals(1, ranking.size());
+        assertEquals("Hurricane Sandy", ranking.getTitle(0));
+        assertEquals("sandy link", ranking.getShareLink(0));
+        assertEquals(2, ranking.getImageId(0));
+    }
+}
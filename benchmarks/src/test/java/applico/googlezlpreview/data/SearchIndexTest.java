@@ -0,0 +1,184 @@
+package applico.googlezlpreview.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import applico.googlezlpreview.models.EventStore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks search against a brute force scan of every title
+ */
+public class SearchIndexTest {
+
+    private static final long SEED = 2012;
+    private static final int CATEGORIES = 4;
+    private static final int EVENTS_PER_CATEGORY = 200;
+    private static final int RANDOM_QUERIES = 500;
+    private static final String[] WORDS = {"hurricane", "sandy", "san", "gangnam", "style", "styles", "harry", "ha",
+            "hat", "olympics", "2012", "election", "h"};
+
+    private List<EventStore> mCategories;
+    private SearchIndex mIndex;
+
+    @Before
+    public void setUp()
+    {
+        Random random = new Random(SEED);
+        mCategories = new ArrayList<EventStore>();
+        mIndex = new SearchIndex();
+        //Added out of order, ties still go to the first category
+        for (int c = CATEGORIES - 1; c >= 0; c--) {
+            EventStore events = new EventStore(EVENTS_PER_CATEGORY);
+            for (int i = 0; i < EVENTS_PER_CATEGORY; i++) {
+                StringBuilder title = new StringBuilder();
+                int words = 1 + random.nextInt(4);
+                for (int w = 0; w < words; w++) {
+                    title.append(w > 0 ? (random.nextBoolean() ? " " : " - ") : "")
+                            .append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                //Case only matters to telling titles apart, short titles repeat across categories
+                events.add(random.nextInt(4) == 0 ? title.toString().toUpperCase() : title.toString(),
+                        "link " + c + " " + i, c);
+            }
+            mCategories.add(0, events);
+            mIndex.add(SearchIndex.buildSegment(c, events));
+        }
+    }
+
+    @Test
+    public void tokenize()
+    {
+        assertArrayEquals(new String[] {"gangnam", "style", "2012"},
+                SearchIndex.tokenize("  Gangnam-Style (2012) "));
+        assertEquals(0, SearchIndex.tokenize(" - ").length);
+        assertEquals(0, SearchIndex.tokenize(null).length);
+    }
+
+    @Test
+    public void emptyQueryMatchesNothing()
+    {
+        assertEquals(0, mIndex.search(" ", 10).size());
+        assertEquals(0, mIndex.search("sandy", 0).size());
+    }
+
+    @Test
+    public void bestMatchingWordCounts()
+    {
+        SearchIndex index = new SearchIndex();
+        EventStore events = new EventStore();
+        events.add("Ha hat", null, 0);
+        events.add("Hat ha", null, 0);
+        index.add(SearchIndex.buildSegment(0, events));
+        //Both have ha as a whole word, only the first has it as the first word
+        EventStore results = index.search("ha", 10);
+        assertEquals("Ha hat", results.getTitle(0));
+        assertEquals("Hat ha", results.getTitle(1));
+    }
+
+    @Test
+    public void matchesBruteForce()
+    {
+        Random random = new Random(SEED);
+        for (int q = 0; q < RANDOM_QUERIES; q++) {
+            StringBuilder query = new StringBuilder();
+            int terms = 1 + random.nextInt(3);
+            for (int t = 0; t < terms; t++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                query.append(t > 0 ? " " : "").append(word.substring(0, 1 + random.nextInt(word.length())));
+            }
+            int limit = 1 + random.nextInt(100);
+            assertSameResults(query.toString(), bruteForce(query.toString(), limit),
+                    mIndex.search(query.toString(), limit));
+        }
+    }
+
+    private static void assertSameResults(String query, List<Result> expected, EventStore actual)
+    {
+        assertEquals(query, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Result result = expected.get(i);
+            EventStore events = result.events;
+            assertEquals(query, events.getTitle(result.position), actual.getTitle(i));
+            assertEquals(query, events.getShareLink(result.position), actual.getShareLink(i));
+            assertEquals(query, events.getImageId(result.position), actual.getImageId(i));
+            assertEquals(query, i + 1, actual.getRank(i));
+        }
+    }
+
+    /**
+     * Score every title of every category the slow way
+     */
+    private List<Result> bruteForce(String query, int limit)
+    {
+        String[] terms = SearchIndex.tokenize(query);
+        List<Result> results = new ArrayList<Result>();
+        for (int c = 0; c < mCategories.size(); c++) {
+            EventStore events = mCategories.get(c);
+            for (int i = 0; i < events.size(); i++) {
+                String[] words = SearchIndex.tokenize(events.getTitle(i));
+                int score = 0;
+                for (String term : terms) {
+                    int best = 0;
+                    for (int w = 0; w < words.length; w++) {
+                        if (words[w].startsWith(term)) {
+                            best = Math.max(best, (words[w].equals(term) ? 2 : 1) + (w == 0 ? 2 : 0));
+                        }
+                    }
+                    if (best == 0) {
+                        score = 0;
+                        break;
+                    }
+                    score += best;
+                }
+                if (score > 0) {
+                    results.add(new Result(events, c, i, score));
+                }
+            }
+        }
+        Collections.sort(results, new Comparator<Result>() {
+            @Override
+            public int compare(Result lhs, Result rhs) {
+                if (lhs.score != rhs.score) {
+                    return rhs.score - lhs.score;
+                }
+                return lhs.position != rhs.position ? lhs.position - rhs.position : lhs.category - rhs.category;
+            }
+        });
+
+        List<Result> unique = new ArrayList<Result>();
+        HashSet<String> titles = new HashSet<String>();
+        for (Result result : results) {
+            if (unique.size() < limit && titles.add(result.events.getTitle(result.position))) {
+                unique.add(result);
+            }
+        }
+        return unique;
+    }
+
+    private static class Result {
+
+        final EventStore events;
+        final int category;
+        final int position;
+        final int score;
+
+        Result(EventStore events, int category, int position, int score)
+        {
+            this.events = events;
+            this.category = category;
+            this.position = position;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package applico.googlezlpreview.data;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the Space-Saving bounds against exact counts of the same stream
+ */
+public class SpaceSavingTest {
+
+    private static final long SEED = 2012;
+    private static final int CAPACITY = 50;
+    private static final int ITEMS = 2000;
+    private static final int OFFERS = 100000;
+
+    @Test
+    public void exactWhileEverythingFits()
+    {
+        SpaceSaving counters = new SpaceSaving(CAPACITY);
+        counters.offer("a", "A", 3);
+        counters.offer("b", "B", 1);
+        counters.offer("a", "a", 2);
+        int[] top = counters.top(CAPACITY);
+        assertEquals(2, top.length);
+        assertEquals("a", counters.getKey(top[0]));
+        //The label is the one the item was first counted with
+        assertEquals("A", counters.getLabel(top[0]));
+        assertEquals(5, counters.getCount(top[0]));
+        assertEquals(0, counters.getError(top[0]));
+        assertEquals(1, counters.getCount(top[1]));
+        assertEquals(6, counters.getTotal());
+    }
+
+    @Test
+    public void boundsHoldOnSkewedStream()
+    {
+        Random random = new Random(SEED);
+        SpaceSaving counters = new SpaceSaving(CAPACITY);
+        Map<String, Long> exact = new HashMap<String, Long>();
+        for (int i = 0; i < OFFERS; i++) {
+            //Roughly Zipf, a few items take most of the stream and a long tail churns the counters
+            String key = "q" + (int) Math.floor(Math.pow(ITEMS, random.nextDouble()));
+            long weight = 1 + random.nextInt(3);
+            counters.offer(key, key, weight);
+            Long count = exact.get(key);
+            exact.put(key, count == null ? weight : count + weight);
+        }
+
+        long total = counters.getTotal();
+        long maxError = total / CAPACITY;
+        assertEquals(CAPACITY, counters.size());
+
+        HashSet<String> counted = new HashSet<String>();
+        long smallest = Long.MAX_VALUE;
+        for (int slot : counters.top(CAPACITY)) {
+            String key = counters.getKey(slot);
+            long trueCount = exact.get(key);
+            long count = counters.getCount(slot);
+            long error = counters.getError(slot);
+            assertTrue(key + " undercounted", count >= trueCount);
+            assertTrue(key + " guaranteed more than it has", count - error <= trueCount);
+            assertTrue(key + " error over N/k", error <= maxError);
+            counted.add(key);
+            smallest = Math.min(smallest, count);
+        }
+        //Anything without a counter occurred no more often than the smallest counter, so every frequent item has one
+        assertTrue(smallest <= maxError);
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            if (!counted.contains(entry.getKey())) {
+                assertTrue(entry.getKey() + " dropped", entry.getValue() <= smallest);
+            }
+        }
+    }
+
+    @Test
+    public void topIsOrderedByGuaranteedCount()
+    {
+        Random random = new Random(SEED);
+        SpaceSaving counters = new SpaceSaving(CAPACITY);
+        for (int i = 0; i < OFFERS; i++) {
+            String key = "q" + random.nextInt(ITEMS / 10);
+            counters.offer(key, key, 1);
+        }
+        int[] top = counters.top(10);
+        assertEquals(10, top.length);
+        for (int i = 1; i < top.length; i++) {
+            long previous = counters.getCount(top[i - 1]) - counters.getError(top[i - 1]);
+            assertTrue(previous >= counters.getCount(top[i]) - counters.getError(top[i]));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package applico.googlezlpreview.data;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import applico.googlezlpreview.models.TweetWindow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Hand over between a reader thread and the test thread standing in for the UI
+ */
+public class TweetRingBufferTest {
+
+    private static final int CAPACITY = 4;
+    private static final int POSTS = 1000;
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    @Test
+    public void drainsOldestFirstIntoTheWindow() throws InterruptedException
+    {
+        TweetRingBuffer buffer = new TweetRingBuffer(CAPACITY);
+        TweetWindow window = new TweetWindow(CAPACITY * 2);
+        buffer.put("a", "1");
+        buffer.put("b", "2");
+        assertEquals(2, buffer.drainTo(window));
+        buffer.put("c", "3");
+        assertEquals(1, buffer.drainTo(window));
+        assertEquals(0, buffer.drainTo(window));
+
+        assertEquals(3, window.size());
+        assertEquals("3", window.getText(0));
+        assertEquals("2", window.getText(1));
+        assertEquals("1", window.getText(2));
+    }
+
+    @Test
+    public void fullBufferBlocksTheReader() throws InterruptedException
+    {
+        final TweetRingBuffer buffer = new TweetRingBuffer(CAPACITY);
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicBoolean failed = new AtomicBoolean();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < POSTS; i++) {
+                        if (!buffer.put("author", Integer.toString(i))) {
+                            failed.set(true);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    failed.set(true);
+                }
+                done.countDown();
+            }
+        });
+        reader.start();
+
+        //Nothing is lost or reordered however the two sides interleave
+        TweetWindow window = new TweetWindow(1);
+        int received = 0;
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (received < POSTS && System.currentTimeMillis() < deadline) {
+            int count = buffer.drainTo(window);
+            assertTrue(count <= CAPACITY);
+            received += count;
+            if (count > 0) {
+                assertEquals(Integer.toString(received - 1), window.getText(0));
+            }
+        }
+        assertEquals(POSTS, received);
+        assertTrue(done.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertFalse(failed.get());
+    }
+
+    @Test
+    public void closeReleasesABlockedReader() throws InterruptedException
+    {
+        final TweetRingBuffer buffer = new TweetRingBuffer(1);
+        buffer.put("a", "1");
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicBoolean accepted = new AtomicBoolean(true);
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    accepted.set(buffer.put("b", "2"));
+                } catch (InterruptedException e) {
+                    //Fails on the accepted check
+                }
+                done.countDown();
+            }
+        });
+        reader.start();
+
+        assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+        buffer.close();
+        assertTrue(done.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertFalse(accepted.get());
+    }
+}
@@ -0,0 +1,74 @@
+package applico.googlezlpreview.models;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks every min/max level against the samples it covers
+ */
+public class TimeSeriesTest {
+
+    private static final long SEED = 2012;
+    private static final long START = 1000;
+    private static final long INTERVAL = 60 * 1000;
+    private static final int[] SIZES = {1, 2, 4, 5, 16, 17, 100, 1000, 4097};
+
+    @Test
+    public void levelsMatchTheSamples()
+    {
+        Random random = new Random(SEED);
+        for (int size : SIZES) {
+            float[] values = new float[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = (float) random.nextGaussian() * 100;
+            }
+            TimeSeries series = new TimeSeries(START, INTERVAL, values.clone());
+            assertEquals(size, series.size());
+            assertEquals(1, series.getLevelSize(series.getLevelCount() - 1));
+
+            for (int level = 0; level < series.getLevelCount(); level++) {
+                int bucketSize = series.getBucketSize(level);
+                assertEquals((size + bucketSize - 1) / bucketSize, series.getLevelSize(level));
+                for (int bucket = 0; bucket < series.getLevelSize(level); bucket++) {
+                    float min = Float.MAX_VALUE;
+                    float max = -Float.MAX_VALUE;
+                    for (int i = bucket * bucketSize; i < Math.min((bucket + 1) * bucketSize, size); i++) {
+                        min = Math.min(min, values[i]);
+                        max = Math.max(max, values[i]);
+                    }
+                    assertEquals(min, series.getMin(level, bucket), 0);
+                    assertEquals(max, series.getMax(level, bucket), 0);
+                }
+            }
+            assertEquals(series.getMin(series.getLevelCount() - 1, 0), series.getMinValue(), 0);
+            assertEquals(series.getMax(series.getLevelCount() - 1, 0), series.getMaxValue(), 0);
+        }
+    }
+
+    @Test
+    public void emptySeries()
+    {
+        TimeSeries series = new TimeSeries(START, INTERVAL, new float[0]);
+        assertEquals(0, series.size());
+        assertEquals(1, series.getLevelCount());
+        assertEquals(0, series.getMinValue(), 0);
+        assertEquals(0, series.getMaxValue(), 0);
+    }
+
+    @Test
+    public void selectLevelKeepsABucketPerPixel()
+    {
+        TimeSeries series = new TimeSeries(START, INTERVAL, new float[10000]);
+        int width = 300;
+        for (double visible = 1; visible <= series.size(); visible *= 1.7) {
+            int level = series.selectLevel(visible, width);
+            assertTrue(visible / series.getBucketSize(level) >= width || level == 0);
+            assertTrue(visible / series.getBucketSize(level + 1) < width || level == series.getLevelCount() - 1);
+        }
+        assertEquals(series.getLevelCount() - 1, series.selectLevel(series.size(), 0));
+    }
+}
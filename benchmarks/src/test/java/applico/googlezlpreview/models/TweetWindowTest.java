@@ -0,0 +1,40 @@
+package applico.googlezlpreview.models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Order and wrap around of the window
+ */
+public class TweetWindowTest {
+
+    private static final int CAPACITY = 3;
+
+    @Test
+    public void newestFirst()
+    {
+        TweetWindow window = new TweetWindow(CAPACITY);
+        window.add("a", "1");
+        window.add("b", "2");
+        assertEquals(2, window.size());
+        assertEquals("b", window.getAuthor(0));
+        assertEquals("2", window.getText(0));
+        assertEquals("a", window.getAuthor(1));
+        assertEquals("1", window.getText(1));
+    }
+
+    @Test
+    public void fullWindowDropsTheOldest()
+    {
+        TweetWindow window = new TweetWindow(CAPACITY);
+        for (int i = 0; i < 10; i++) {
+            window.add("author " + i, "text " + i);
+            assertEquals(Math.min(i + 1, CAPACITY), window.size());
+            for (int position = 0; position < window.size(); position++) {
+                assertEquals("text " + (i - position), window.getText(position));
+            }
+        }
+        assertEquals(CAPACITY, window.getCapacity());
+    }
+}